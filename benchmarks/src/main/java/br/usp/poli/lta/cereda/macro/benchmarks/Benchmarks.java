@@ -0,0 +1,51 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os testes de desempenho, sempre com o perfilador de coleta de lixo
+ * ativo, de modo que a taxa de alocação seja reportada junto com a vazão. Os
+ * argumentos de linha de comando são os mesmos do JMH.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Benchmarks {
+    
+    /**
+     * Método principal.
+     * @param args Argumentos de linha de comando.
+     * @throws Exception Ocorreu um erro na execução dos testes.
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().
+                parent(new CommandLineOptions(args)).
+                addProfiler(GCProfiler.class).
+                build();
+        new Runner(options).run();
+    }
+    
+}
@@ -0,0 +1,96 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a expansão de um documento com uso intenso de contadores, aritmética e
+ * comparações.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class CounterBenchmark {
+    
+    // número de iterações
+    @Param({"100", "10000"})
+    private int iterations;
+    
+    // documento a ser expandido
+    private String document;
+
+    /**
+     * Constrói o documento, em que cada iteração incrementa um contador,
+     * calcula valores derivados e compara o resultado com um limite.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        String counter = Documents.call("counter", "c");
+        String body = Documents.call("increment counter", "c")
+                + Documents.call("check condition",
+                        Documents.call("is greater than", counter,
+                                String.valueOf(iterations / 2)),
+                        Documents.call("increment", counter),
+                        Documents.call("decrement", counter))
+                + Documents.call("check condition",
+                        Documents.call("is zero",
+                                Documents.call("counter", "d")),
+                        "zero", "")
+                + "\n";
+        document = Documents.call("new counter", "c")
+                + Documents.call("new counter", "d")
+                + Documents.call("set counter", "d", "0")
+                + Documents.call("repeat", String.valueOf(iterations), body);
+    }
+
+    /**
+     * Expande o documento em um novo contexto.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String expand() throws Exception {
+        return MacroExpander.parse(document, new ExpansionContext());
+    }
+    
+}
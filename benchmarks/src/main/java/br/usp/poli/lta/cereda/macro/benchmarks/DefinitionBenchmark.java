@@ -0,0 +1,106 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a definição de uma macro paramétrica com um corpo extenso, como as
+ * tabelas geradas automaticamente e embutidas nos documentos. O tempo deve
+ * crescer linearmente com o tamanho do corpo.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class DefinitionBenchmark {
+    
+    // tamanho do corpo da macro, em símbolos
+    @Param({"4096", "65536", "524288"})
+    private int size;
+    
+    // documento contendo apenas a definição da macro
+    private String definition;
+    
+    // documento contendo a definição e uma chamada da macro
+    private String document;
+
+    /**
+     * Constrói o corpo da macro, composto de linhas de uma tabela com uma
+     * referência ao parâmetro a cada 64 linhas.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder(size + 1024);
+        int line = 0;
+        while (sb.length() < size) {
+            sb.append("| ").append(line).append(" | ").append(line * 2).
+                    append(" | ").append(line * 3).append(" |\n");
+            if (++line % 64 == 0) {
+                sb.append(Documents.call("title")).append("\n");
+            }
+        }
+        definition = Documents.define("define", "table", sb.toString(),
+                "title");
+        document = definition + Documents.call("table", "Tabela");
+    }
+
+    /**
+     * Define a macro em um novo contexto, sem chamá-la.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String define() throws Exception {
+        return MacroExpander.parse(definition, new ExpansionContext());
+    }
+
+    /**
+     * Define a macro em um novo contexto e a chama uma vez.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String defineAndCall() throws Exception {
+        return MacroExpander.parse(document, new ExpansionContext());
+    }
+    
+}
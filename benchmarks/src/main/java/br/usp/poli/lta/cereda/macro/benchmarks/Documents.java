@@ -0,0 +1,109 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+/**
+ * Disponibiliza métodos utilitários para a construção dos documentos
+ * utilizados nos testes de desempenho.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Documents {
+    
+    // delimitadores candidatos, na ordem de preferência
+    private static final String DELIMITERS = "|:/#$%@!&*+~^;?<>";
+    
+    /**
+     * Obtém um delimitador que não ocorre no texto informado.
+     * @param text Texto a ser delimitado.
+     * @return Delimitador.
+     */
+    private static char delimiter(String text) {
+        for (char symbol : DELIMITERS.toCharArray()) {
+            if (text.indexOf(symbol) == -1) {
+                return symbol;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Não há delimitador disponível para o texto."
+        );
+    }
+    
+    /**
+     * Delimita o texto informado, no formato de um argumento.
+     * @param text Texto a ser delimitado.
+     * @return Texto delimitado.
+     */
+    public static String quote(String text) {
+        char symbol = delimiter(text);
+        return "\\" + symbol + text + symbol + "\\";
+    }
+    
+    /**
+     * Constrói a chamada de uma macro.
+     * @param name Nome da macro.
+     * @param arguments Argumentos da chamada.
+     * @return Chamada da macro.
+     */
+    public static String call(String name, String... arguments) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\\|").append(name);
+        if (arguments.length > 0) {
+            sb.append("(");
+            for (int i = 0; i < arguments.length; i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(quote(arguments[i]));
+            }
+            sb.append(")");
+        }
+        sb.append("|\\");
+        return sb.toString();
+    }
+    
+    /**
+     * Constrói a definição de uma nova macro.
+     * @param primitive Primitiva de definição (local ou global).
+     * @param name Nome da macro.
+     * @param body Corpo da macro.
+     * @param parameters Parâmetros da macro.
+     * @return Definição da nova macro.
+     */
+    public static String define(String primitive, String name, String body,
+            String... parameters) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\\#").append(name);
+        if (parameters.length > 0) {
+            sb.append("(");
+            for (int i = 0; i < parameters.length; i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(quote(parameters[i]));
+            }
+            sb.append(")");
+        }
+        sb.append("#\\=").append(quote(body));
+        return call(primitive, sb.toString());
+    }
+    
+}
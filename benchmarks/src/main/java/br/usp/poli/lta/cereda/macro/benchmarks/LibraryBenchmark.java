@@ -0,0 +1,107 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a expansão de um documento que chama macros de uma biblioteca global
+ * de tamanho variável.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class LibraryBenchmark {
+    
+    // número de macros da biblioteca
+    @Param({"100", "1000", "10000"})
+    private int size;
+    
+    // contexto contendo a biblioteca no escopo global
+    private ExpansionContext context;
+    
+    // documento com mil chamadas a macros da biblioteca
+    private String document;
+
+    /**
+     * Define a biblioteca e constrói o documento.
+     * @throws Exception Ocorreu um erro na definição das macros.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(Documents.define("global define", "macro " + i,
+                    "corpo " + i));
+            sb.append(Documents.define("global define", "macro " + i,
+                    "<" + Documents.call("x") + ">", "x"));
+        }
+        context = Library.load(sb.toString()).createContext();
+        
+        Random random = new Random(42);
+        sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(size);
+            if (i % 2 == 0) {
+                sb.append(Documents.call("macro " + index));
+            }
+            else {
+                sb.append(Documents.call("macro " + index, "arg"));
+            }
+            sb.append(' ');
+        }
+        document = sb.toString();
+    }
+
+    /**
+     * Expande o documento.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String expand() throws Exception {
+        return MacroExpander.parse(document, context);
+    }
+    
+}
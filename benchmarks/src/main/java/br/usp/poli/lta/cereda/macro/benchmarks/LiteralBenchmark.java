@@ -0,0 +1,104 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.Compiler;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Program;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a análise e a expansão de documentos compostos majoritariamente de
+ * trechos literais, com uma chamada de macro a cada 4 KB de texto.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class LiteralBenchmark {
+    
+    // tamanho do documento, em símbolos
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+    
+    // documento a ser expandido
+    private String document;
+
+    /**
+     * Constrói o documento, composto de linhas de texto literal intercaladas
+     * com chamadas de uma macro simples definida no início.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        String line = "The quick brown fox jumps over the lazy dog, "
+                + "again and again.\n";
+        StringBuilder sb = new StringBuilder(size + 1024);
+        sb.append(Documents.define("define", "fox", "raposa"));
+        int mark = 0;
+        while (sb.length() < size) {
+            sb.append(line);
+            if (sb.length() - mark >= 4096) {
+                sb.append(Documents.call("fox"));
+                mark = sb.length();
+            }
+        }
+        document = sb.toString();
+    }
+
+    /**
+     * Compila o documento, sem executá-lo.
+     * @return Documento compilado.
+     */
+    @Benchmark
+    public Program compile() {
+        return Compiler.compile(document);
+    }
+
+    /**
+     * Expande o documento em um novo contexto.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String expand() throws Exception {
+        return MacroExpander.parse(document, new ExpansionContext());
+    }
+    
+}
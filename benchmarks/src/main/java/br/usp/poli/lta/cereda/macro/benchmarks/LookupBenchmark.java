@@ -0,0 +1,140 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Macro;
+import br.usp.poli.lta.cereda.macro.model.Node;
+import br.usp.poli.lta.cereda.macro.model.NodeType;
+import br.usp.poli.lta.cereda.macro.model.Primitive;
+import br.usp.poli.lta.cereda.macro.model.Slice;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.util.MacroUtils;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede o custo da procura de macros nos escopos de acordo com o tamanho da
+ * biblioteca global e a profundidade da pilha de escopos.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class LookupBenchmark {
+
+    // número de macros definidas no escopo global
+    @Param({"10", "100", "1000", "3000", "10000"})
+    private int library;
+    
+    // número de escopos empilhados sobre o escopo global
+    @Param({"1", "16", "64"})
+    private int depth;
+    
+    // contexto da expansão
+    private ExpansionContext context;
+    
+    // nome de uma macro do escopo global
+    private String global;
+    
+    // nome de um parâmetro do escopo corrente
+    private String local;
+    
+    // local de chamada da macro do escopo global
+    private Node site;
+
+    /**
+     * Cria o escopo global com a biblioteca de macros e empilha os escopos
+     * locais, cada um contendo dois parâmetros.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new ExpansionContext();
+        ScopeController controller = context.getScopes();
+        controller.createNewScope();
+        for (int i = 0; i < library; i++) {
+            controller.addMacroToGlobalScope(
+                    new Macro("macro " + i, "corpo " + i)
+            );
+        }
+        for (int i = 0; i < depth; i++) {
+            controller.createNewScope();
+            controller.addMacroToCurrentScope(new Macro("a" + i, "a"));
+            controller.addMacroToCurrentScope(new Macro("b" + i, "b"));
+        }
+        global = "macro " + (library / 2);
+        local = "a" + (depth - 1);
+        site = new Node(NodeType.MACRO, global, Primitive.NONE,
+                new HashMap<Integer, Slice>());
+    }
+
+    /**
+     * Procura uma macro definida no escopo global, percorrendo todos os
+     * escopos locais.
+     * @return Macro encontrada.
+     * @throws MacroNotFoundException A macro não foi encontrada.
+     */
+    @Benchmark
+    public Macro findGlobal() throws MacroNotFoundException {
+        return MacroUtils.find(context, global, 0);
+    }
+
+    /**
+     * Procura uma macro definida no escopo corrente.
+     * @return Macro encontrada.
+     * @throws MacroNotFoundException A macro não foi encontrada.
+     */
+    @Benchmark
+    public Macro findLocal() throws MacroNotFoundException {
+        return MacroUtils.find(context, local, 0);
+    }
+
+    /**
+     * Procura uma macro definida no escopo global a partir de um local de
+     * chamada, com a assinatura já obtida na compilação.
+     * @return Macro encontrada.
+     * @throws MacroNotFoundException A macro não foi encontrada.
+     */
+    @Benchmark
+    public Macro resolveGlobal() throws MacroNotFoundException {
+        return MacroUtils.resolve(context, site).getMacro();
+    }
+    
+}
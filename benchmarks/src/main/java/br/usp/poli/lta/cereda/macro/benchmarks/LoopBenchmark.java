@@ -0,0 +1,101 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a expansão das primitivas de repetição e de iteração com um grande
+ * número de iterações.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class LoopBenchmark {
+    
+    // número de iterações
+    @Param({"10", "1000", "100000"})
+    private int iterations;
+    
+    // documentos com as primitivas de repetição e de iteração
+    private String repeat;
+    private String each;
+
+    /**
+     * Constrói os documentos.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        String prefix = Documents.define("define", "item", "[" +
+                Documents.call("x") + "]", "x");
+        repeat = prefix + Documents.call("repeat", String.valueOf(iterations),
+                Documents.call("item", "valor") + "\n");
+        String[] arguments = new String[iterations + 1];
+        for (int i = 0; i < iterations; i++) {
+            arguments[i] = "elemento " + i;
+        }
+        arguments[iterations] = Documents.call("item", Documents.call("it"))
+                + "\n";
+        each = prefix + Documents.call("for each", arguments);
+    }
+
+    /**
+     * Expande a primitiva de repetição.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String repeat() throws Exception {
+        return MacroExpander.parse(repeat, new ExpansionContext());
+    }
+
+    /**
+     * Expande a primitiva de iteração.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String forEach() throws Exception {
+        return MacroExpander.parse(each, new ExpansionContext());
+    }
+    
+}
@@ -0,0 +1,107 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a expansão de uma cadeia de chamadas aninhadas, em que cada macro chama
+ * a seguinte, com profundidades próximas do limite de recursão.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class NestingBenchmark {
+    
+    // profundidade da cadeia de chamadas
+    @Param({"50", "200", "450"})
+    private int depth;
+    
+    // contexto contendo a cadeia de macros no escopo global
+    private ExpansionContext context;
+    
+    // documentos que iniciam as cadeias de macros simples e paramétricas
+    private String simple;
+    private String parametric;
+
+    /**
+     * Define as cadeias de macros simples e paramétricas na biblioteca.
+     * @throws Exception Ocorreu um erro na definição das macros.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            String next = i == depth - 1 ? "fim" : Documents.call("s" + (i + 1));
+            sb.append(Documents.define("define", "s" + i, next));
+            next = i == depth - 1 ? Documents.call("x") :
+                    Documents.call("p" + (i + 1), Documents.call("x"));
+            sb.append(Documents.define("define", "p" + i, next, "x"));
+        }
+        context = Library.load(sb.toString()).createContext();
+        simple = Documents.call("s0");
+        parametric = Documents.call("p0", "fim");
+    }
+
+    /**
+     * Expande a cadeia de macros simples.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String simple() throws Exception {
+        return MacroExpander.parse(simple, context);
+    }
+
+    /**
+     * Expande a cadeia de macros paramétricas, em que cada macro repassa o
+     * seu argumento à seguinte.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String parametric() throws Exception {
+        return MacroExpander.parse(parametric, context);
+    }
+    
+}
@@ -0,0 +1,138 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.benchmarks;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mede a procura de macros globais a partir dos corpos de macros
+ * paramétricas, com várias linhas de execução expandindo o mesmo documento,
+ * cada uma em um contexto próprio criado a partir da mesma biblioteca. Além
+ * da vazão, são reportados o número de procuras e o número de procuras que
+ * consultaram apenas o escopo global; a razão entre os dois é a taxa de
+ * acerto do filtro de assinaturas.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dlog4j.configurationFile=log4j2-benchmark.xml"
+})
+public class ResolutionBenchmark {
+    
+    // número de macros da biblioteca
+    @Param({"100", "10000"})
+    private int size;
+    
+    // biblioteca compartilhada pelas linhas de execução
+    private Library library;
+    
+    // documento com chamadas aninhadas a macros paramétricas
+    private String document;
+
+    /**
+     * Contadores de procuras de cada linha de execução.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+        
+        // número de procuras
+        public long lookups;
+        
+        // número de procuras que consultaram apenas o escopo global
+        public long shortcuts;
+        
+    }
+
+    /**
+     * Define a biblioteca, com duas macros paramétricas cujos corpos chamam
+     * macros globais, e constrói o documento.
+     * @throws Exception Ocorreu um erro na definição das macros.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(Documents.define("global define", "macro " + i,
+                    "corpo " + i));
+        }
+        sb.append(Documents.define("global define", "inner",
+                Documents.call("macro 1") + Documents.call("y") +
+                Documents.call("macro " + (size - 1)), "y"));
+        sb.append(Documents.define("global define", "outer",
+                "[" + Documents.call("macro " + (size / 2)) +
+                Documents.call("inner", Documents.call("x")) +
+                Documents.call("macro 0") + "]", "x"));
+        library = Library.load(sb.toString());
+        
+        Random random = new Random(42);
+        sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append(Documents.call("outer",
+                    Documents.call("macro " + random.nextInt(size))));
+            sb.append(' ');
+        }
+        document = sb.toString();
+    }
+
+    /**
+     * Expande o documento em um novo contexto criado a partir da biblioteca
+     * compartilhada.
+     * @param counters Contadores de procuras da linha de execução.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Benchmark
+    public String expand(Lookups counters) throws Exception {
+        ExpansionContext context = library.createContext();
+        String result = MacroExpander.parse(document, context);
+        ScopeController scopes = context.getScopes();
+        counters.lookups = counters.lookups + scopes.getLookups();
+        counters.shortcuts = counters.shortcuts + scopes.getShortcuts();
+        return result;
+    }
+    
+}
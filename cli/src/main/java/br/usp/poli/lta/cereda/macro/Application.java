@@ -0,0 +1,259 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro;
+
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Interaction;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import br.usp.poli.lta.cereda.macro.ui.Editor;
+import br.usp.poli.lta.cereda.macro.util.BatchProcessor;
+import br.usp.poli.lta.cereda.macro.util.CLIParser;
+import br.usp.poli.lta.cereda.macro.util.DisplayUtils;
+import br.usp.poli.lta.cereda.macro.util.ExpansionServer;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.WordUtils;
+
+/**
+ * Classe principal do programa de linha de comando.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Application {
+    
+    /**
+     * Método principal.
+     * @param args Argumentos de linha de comando.
+     */
+    public static void main(String[] args) {
+        
+        // imprime banner
+        System.out.println(
+                StringUtils.repeat("-", 50)
+        );
+        System.out.println(
+                StringUtils.center("Expansor de macros", 50)
+        );
+        System.out.println(
+                StringUtils.repeat("-", 50)
+        );
+        System.out.println(
+                StringUtils.center(
+                        "Laboratório de linguagens e técnicas adaptativas",
+                        50
+                )
+        );
+        System.out.println(
+                StringUtils.center(
+                        "Escola Politécnica - Universidade de São Paulo",
+                        50
+                )
+        );
+        System.out.println();
+        
+        try {
+            
+            // faz o parsing dos argumentos de linha de comando
+            CLIParser parser = new CLIParser(args);
+            Pair<String, File> pair = parser.parse();
+            
+            // a expansão sem interface gráfica não carrega as classes da
+            // interface; as primitivas de interação utilizam o terminal
+            if (parser.isHeadless()) {
+                System.setProperty("java.awt.headless", "true");
+            }
+            
+            // se o par não é nulo, ou se é uma expansão em lote, é possível
+            // prosseguir com a expansão
+            if (pair != null || parser.isBatch()) {
+                Library library = Library.load(
+                        parser.getLibrary(),
+                        parser.getLimit()
+                );
+                execute(parser, pair, library, System.out,
+                        Charset.defaultCharset(), null);
+            }
+            
+            // verifica se a execução corresponde ao serviço de expansão, que
+            // permanece ativo aguardando as tarefas dos clientes
+            if (parser.isDaemon()) {
+                Daemon daemon = new Daemon(parser.getPort());
+                daemon.preload(parser.getLibrary(), parser.getLimit());
+                daemon.run();
+            }
+            
+            // verifica se a execução corresponde ao serviço HTTP de expansão;
+            // cada arquivo da biblioteca é carregado separadamente
+            if (parser.isServer()) {
+                ExpansionServer server = new ExpansionServer(
+                        new InetSocketAddress(
+                                InetAddress.getLoopbackAddress(),
+                                parser.getPort()
+                        ),
+                        parser.getLimit(),
+                        parser.getConcurrency(),
+                        parser.getSize()
+                );
+                for (Map.Entry<String, String> entry :
+                        parser.getLibraries().entrySet()) {
+                    server.addLibrary(
+                            entry.getKey(),
+                            Library.load(entry.getValue(), parser.getLimit())
+                    );
+                }
+                server.start();
+                System.out.println(
+                        String.format(
+                                "Serviço HTTP de expansão aguardando requisições na porta %d.",
+                                server.getAddress().getPort()
+                        )
+                );
+            }
+                
+            // verifica se a execução corresponde a uma chamada ao editor
+            // embutido de macros
+            if (parser.isEditor()) {
+
+                // cria o editor e exibe
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        DisplayUtils.init();
+                        Editor editor = new Editor();
+                        editor.setVisible(true);
+                    }
+                });
+            }
+        }
+        catch (Exception exception) {
+            
+            // ocorreu uma exceção, imprime a mensagem de erro
+            error(System.out, "ERRO: ", exception.getMessage());
+        }
+    }
+
+    /**
+     * Executa a expansão descrita pelos argumentos, seja de um único texto,
+     * seja em lote. O método é compartilhado entre a linha de comando e as
+     * tarefas recebidas pelo serviço de expansão.
+     * @param parser Analisador dos argumentos.
+     * @param pair Par contendo o texto a ser expandido e o arquivo de saída,
+     * ou nulo no caso da expansão em lote.
+     * @param library Biblioteca de macros, já carregada.
+     * @param terminal Fluxo de impressão das mensagens e, caso não haja um
+     * arquivo de saída, do texto expandido.
+     * @param charset Codificação do texto expandido impresso no terminal.
+     * @param interaction Interação das primitivas de inserção de texto e de
+     * envio de mensagem, ou nulo para a interação padrão dos contextos.
+     * @return Valor lógico que indica se todos os arquivos foram gerados com
+     * sucesso.
+     * @throws Exception Ocorreu um erro na expansão de um único texto.
+     */
+    static boolean execute(CLIParser parser, Pair<String, File> pair,
+            Library library, PrintStream terminal, Charset charset,
+            Interaction interaction) throws Exception {
+        
+        // verifica se a execução corresponde a uma expansão em lote, na qual
+        // cada arquivo é expandido separadamente, em paralelo; a biblioteca é
+        // expandida uma única vez e compartilhada entre os arquivos
+        if (parser.isBatch()) {
+            BatchProcessor processor = new BatchProcessor(library,
+                    Runtime.getRuntime().availableProcessors(), interaction);
+            List<Pair<File, File>> jobs = BatchProcessor.mirror(
+                    parser.getInputs(),
+                    parser.getDirectory()
+            );
+            List<Pair<File, Exception>> failures = processor.process(jobs);
+
+            // imprime os erros encontrados e o resumo da expansão
+            for (Pair<File, Exception> failure : failures) {
+                error(terminal, "ERRO: " + failure.getFirst().getPath() + " ",
+                        failure.getSecond().getMessage());
+            }
+            terminal.println(
+                    String.format(
+                            "%d de %d arquivos gerados com sucesso.",
+                            jobs.size() - failures.size(),
+                            jobs.size()
+                    )
+            );
+            return failures.isEmpty();
+        }
+        
+        // o texto é expandido no contexto da biblioteca, caso informada
+        ExpansionContext context = parser.getLibrary().isEmpty() ?
+                new ExpansionContext(parser.getLimit()) :
+                library.createContext();
+        if (interaction != null) {
+            context.setInteraction(interaction);
+        }
+        
+        // se foi definido um arquivo de saída, a expansão do texto é gravada
+        // nele, ou impressa no terminal, caso contrário; em ambos os casos, o
+        // texto é encaminhado ao destino à medida que a expansão avança
+        if (pair.getSecond() != null) {
+            try (Writer writer = new OutputStreamWriter(
+                    FileUtils.openOutputStream(pair.getSecond()),
+                    Charset.forName("UTF-8"))) {
+                MacroExpander.parse(pair.getFirst(), context, writer);
+            }
+            catch (Exception exception) {
+
+                // o arquivo parcialmente gerado é removido
+                FileUtils.deleteQuietly(pair.getSecond());
+                throw exception;
+            }
+            terminal.println("Arquivo gerado com sucesso.");
+        }
+        else {
+            Writer writer = new OutputStreamWriter(terminal, charset);
+            MacroExpander.parse(pair.getFirst(), context, writer);
+            terminal.println();
+        }
+        return true;
+    }
+
+    /**
+     * Imprime uma mensagem de erro.
+     * @param terminal Fluxo de impressão.
+     * @param title Título do erro.
+     * @param message Mensagem de erro.
+     */
+    static void error(PrintStream terminal, String title, String message) {
+        terminal.println(StringUtils.rightPad(title, 50, "-"));
+        terminal.println(WordUtils.wrap(message, 50));
+        terminal.println(StringUtils.repeat(".", 50));
+    }
+    
+    // that's all, folks
+    
+}
@@ -0,0 +1,210 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+
+/**
+ * Cliente do serviço de expansão residente. O cliente encaminha os argumentos
+ * de linha de comando e o diretório de trabalho ao serviço, na porta local
+ * informada, e imprime as mensagens e o texto expandido à medida que são
+ * recebidos. Antes da tarefa, o cliente envia o segredo gravado pelo serviço
+ * em um arquivo legível apenas pelo usuário que o iniciou, de modo que os
+ * demais usuários da máquina não possam utilizá-lo. O cliente utiliza apenas
+ * as classes da plataforma, de modo que a sua inicialização não carrega o
+ * expansor nem as suas dependências.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Client {
+    
+    // bloco de texto enviado pelo serviço
+    static final int OUTPUT = 1;
+    
+    // estado de saída da tarefa, enviado pelo serviço ao término
+    static final int EXIT = 2;
+    
+    // estado de saída de uma tarefa concluída com sucesso
+    static final int SUCCESS = 0;
+    
+    // estado de saída de uma tarefa com erros de expansão ou de comunicação
+    static final int FAILURE = 1;
+    
+    // estado de saída de uma tarefa com argumentos inválidos
+    static final int USAGE = 2;
+    
+    // propriedade que redefine o diretório dos segredos do serviço
+    static final String DIRECTORY = "macro.daemon.directory";
+    
+    /**
+     * Método principal. O primeiro argumento é a porta do serviço; os demais
+     * são encaminhados ao serviço, tal como seriam informados à linha de
+     * comando do expansor. O estado de saída do processo é o da tarefa.
+     * @param args Argumentos de linha de comando.
+     */
+    public static void main(String[] args) {
+        
+        int port = 0;
+        try {
+            if (args.length > 0) {
+                port = Integer.parseInt(args[0]);
+            }
+        }
+        catch (NumberFormatException exception) {
+            port = 0;
+        }
+        if (port <= 0 || port > 65535) {
+            System.err.println(
+                    "Uso: client <porta> <argumentos do expansor>"
+            );
+            System.exit(USAGE);
+        }
+        
+        try {
+            System.exit(
+                    forward(
+                            port,
+                            Arrays.copyOfRange(args, 1, args.length),
+                            System.out
+                    )
+            );
+        }
+        catch (IOException exception) {
+            System.err.println(
+                    String.format(
+                            "Não foi possível comunicar com o serviço de expansão na porta %d: %s",
+                            port,
+                            exception.getMessage()
+                    )
+            );
+            System.exit(FAILURE);
+        }
+    }
+
+    /**
+     * Obtém o arquivo do segredo do serviço na porta informada. Os segredos
+     * ficam no diretório '.macro-expander' do usuário, ou no diretório
+     * indicado pela propriedade 'macro.daemon.directory'.
+     * @param port Porta local do serviço.
+     * @return Arquivo do segredo.
+     */
+    static File getSecret(int port) {
+        String path = System.getProperty(DIRECTORY);
+        File directory = path != null ? new File(path) :
+                new File(System.getProperty("user.home"), ".macro-expander");
+        return new File(directory, String.format("daemon-%d.token", port));
+    }
+
+    /**
+     * Encaminha a tarefa ao serviço e imprime o texto recebido.
+     * @param port Porta local do serviço.
+     * @param arguments Argumentos da tarefa.
+     * @param terminal Fluxo de impressão das mensagens e do texto expandido.
+     * @return Estado de saída da tarefa.
+     * @throws IOException Ocorreu um erro na comunicação com o serviço, ou o
+     * segredo do serviço não pôde ser lido.
+     */
+    static int forward(int port, String[] arguments, PrintStream terminal)
+            throws IOException {
+        
+        File file = getSecret(port);
+        String secret;
+        try {
+            secret = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        }
+        catch (NoSuchFileException exception) {
+            throw new IOException(
+                    String.format(
+                            "O segredo do serviço não existe em '%s'; o serviço deve ser iniciado pelo mesmo usuário.",
+                            file
+                    )
+            );
+        }
+        
+        try (Socket socket = new Socket(
+                InetAddress.getLoopbackAddress(), port)) {
+            
+            // envia o segredo, a codificação do terminal, o diretório de
+            // trabalho e os argumentos da tarefa
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            output.writeUTF(secret.trim());
+            output.writeUTF(Charset.defaultCharset().name());
+            output.writeUTF(new File("").getAbsolutePath());
+            output.writeInt(arguments.length);
+            for (String argument : arguments) {
+                output.writeUTF(argument);
+            }
+            output.flush();
+            
+            // imprime os blocos de texto até receber o estado de saída
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int kind = input.read();
+                if (kind < 0) {
+                    
+                    // o serviço encerra a conexão sem resposta caso o
+                    // segredo não confira
+                    throw new IOException(
+                            "A conexão foi encerrada pelo serviço."
+                    );
+                }
+                if (kind == EXIT) {
+                    terminal.flush();
+                    return input.readInt();
+                }
+                if (kind != OUTPUT) {
+                    throw new IOException(
+                            "O serviço enviou uma resposta inválida."
+                    );
+                }
+                int length = input.readInt();
+                while (length > 0) {
+                    int count = input.read(buffer, 0,
+                            Math.min(length, buffer.length));
+                    if (count < 0) {
+                        throw new IOException(
+                                "A conexão foi encerrada pelo serviço."
+                        );
+                    }
+                    terminal.write(buffer, 0, count);
+                    length -= count;
+                }
+                terminal.flush();
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,721 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro;
+
+import br.usp.poli.lta.cereda.macro.model.Library;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.CLIParser;
+import br.usp.poli.lta.cereda.macro.util.HeadlessInteraction;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementa o serviço de expansão residente. O serviço aceita, em uma porta
+ * local, as tarefas enviadas pelo cliente, cada uma contendo os argumentos de
+ * linha de comando e o diretório de trabalho do cliente, e devolve as
+ * mensagens e o texto expandido à medida que a expansão avança. Cada tarefa é
+ * expandida em um contexto próprio, e as bibliotecas de macros já carregadas
+ * são mantidas entre as tarefas, de modo que apenas a primeira tarefa paga o
+ * custo da inicialização da máquina virtual e da expansão da biblioteca. As
+ * tarefas leem e gravam arquivos com as permissões do processo; por isso, o
+ * serviço atende apenas os clientes que apresentam o segredo gerado a cada
+ * inicialização e gravado em um arquivo legível apenas pelo usuário. As
+ * mensagens das primitivas de interação de cada tarefa são enviadas ao seu
+ * cliente.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Daemon {
+    
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(Daemon.class);
+    
+    // número máximo de bibliotecas mantidas carregadas
+    private static final int LIBRARIES = 16;
+    
+    // tempo máximo de espera pelo segredo e pelos argumentos de uma tarefa,
+    // em milissegundos
+    private static final int TIMEOUT = 2000;
+    
+    // número de linhas de execução que leem o segredo e os argumentos, e
+    // número máximo de conexões aguardando a leitura
+    private static final int HANDSHAKES = 4;
+    private static final int BACKLOG = 50;
+    
+    // codificação do segredo
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    // porta local do serviço
+    private final int port;
+    
+    // conexão do serviço, aberta durante o atendimento das tarefas
+    private volatile ServerSocket server;
+    
+    // segredo que os clientes devem apresentar antes da tarefa
+    private volatile byte[] secret;
+    
+    // bibliotecas carregadas ou em carregamento, indexadas pelo limite de
+    // chamadas aninhadas e pelo texto
+    private final ConcurrentMap<String, Entry> libraries =
+            new ConcurrentHashMap<>();
+    
+    // relógio lógico do último uso das bibliotecas
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Construtor.
+     * @param port Porta local do serviço.
+     */
+    public Daemon(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Carrega a biblioteca antes da primeira tarefa.
+     * @param text Texto da biblioteca.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public void preload(String text, int limit)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        getLibrary(text, limit);
+    }
+
+    /**
+     * Aceita as tarefas dos clientes até que o serviço ou o processo seja
+     * encerrado. O segredo e os argumentos de cada conexão são lidos por um
+     * pequeno conjunto de linhas de execução, com um tempo máximo de espera
+     * curto, e apenas as tarefas completas seguem para a expansão; desse
+     * modo, uma conexão ociosa não ocupa uma linha de execução de expansão.
+     * As tarefas são executadas em paralelo, com uma linha de execução por
+     * processador disponível; as tarefas excedentes aguardam na fila. O
+     * segredo é gravado após a abertura da porta e removido ao término do
+     * serviço.
+     * @throws IOException Não foi possível abrir a porta do serviço ou gravar
+     * o segredo.
+     */
+    public void run() throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        ExecutorService handshakes = new ThreadPoolExecutor(HANDSHAKES,
+                HANDSHAKES, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(BACKLOG));
+        
+        // o serviço atende apenas conexões locais, uma vez que as tarefas
+        // leem e gravam arquivos com as permissões do processo
+        File file = Client.getSecret(port);
+        try (ServerSocket socket = new ServerSocket(port, BACKLOG,
+                InetAddress.getLoopbackAddress())) {
+            server = socket;
+            secret = createSecret(file);
+            System.out.println(
+                    String.format(
+                            "Serviço de expansão aguardando tarefas na porta %d.",
+                            port
+                    )
+            );
+            while (!socket.isClosed()) {
+                final Socket client;
+                try {
+                    client = socket.accept();
+                }
+                catch (IOException exception) {
+                    if (socket.isClosed()) {
+                        break;
+                    }
+                    throw exception;
+                }
+                try {
+                    handshakes.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            handshake(client, pool);
+                        }
+                    });
+                }
+                catch (RejectedExecutionException exception) {
+                    logger.warn(
+                            "Conexão recusada: há {} conexões aguardando a leitura dos argumentos.",
+                            BACKLOG
+                    );
+                    close(client);
+                }
+            }
+        }
+        finally {
+            handshakes.shutdown();
+            pool.shutdown();
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * Encerra o atendimento das tarefas; as tarefas em andamento são
+     * concluídas.
+     * @throws IOException Ocorreu um erro no encerramento da porta.
+     */
+    public void stop() throws IOException {
+        ServerSocket socket = server;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Gera um novo segredo e o grava no arquivo informado. Nos sistemas POSIX,
+     * o diretório é acessível e o arquivo é legível apenas pelo usuário; o
+     * arquivo é gravado por inteiro antes de substituir o anterior, de modo
+     * que um cliente nunca leia um segredo incompleto.
+     * @param file Arquivo do segredo.
+     * @return Segredo gerado.
+     * @throws IOException Não foi possível gravar o segredo.
+     */
+    private static byte[] createSecret(File file) throws IOException {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte value : bytes) {
+            sb.append(String.format("%02x", value));
+        }
+        byte[] result = sb.toString().getBytes(UTF8);
+        
+        Path directory = file.getAbsoluteFile().getParentFile().toPath();
+        Path temporary;
+        if (FileSystems.getDefault().supportedFileAttributeViews().
+                contains("posix")) {
+            Set<PosixFilePermission> owner =
+                    PosixFilePermissions.fromString("rwx------");
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(owner));
+            Files.setPosixFilePermissions(directory, owner);
+            FileAttribute<Set<PosixFilePermission>> attribute =
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rw-------"));
+            temporary = Files.createTempFile(directory, "daemon", ".tmp",
+                    attribute);
+        }
+        else {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "daemon", ".tmp");
+        }
+        Files.write(temporary, result);
+        Files.move(temporary, file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Segredo do serviço gravado em '{}'.", file);
+        return result;
+    }
+
+    /**
+     * Lê o segredo e os argumentos da tarefa de um cliente e, caso o segredo
+     * confira, envia a tarefa ao conjunto de linhas de execução de expansão.
+     * A conexão é encerrada sem resposta caso o segredo não confira ou caso
+     * o cliente não envie a tarefa dentro do tempo máximo de espera.
+     * @param socket Conexão com o cliente.
+     * @param pool Conjunto de linhas de execução de expansão.
+     */
+    private void handshake(final Socket socket, ExecutorService pool) {
+        try {
+            socket.setSoTimeout(TIMEOUT);
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            
+            // o cliente deve apresentar o segredo antes da tarefa; caso
+            // contrário, a conexão é encerrada sem resposta
+            byte[] token = input.readUTF().getBytes(UTF8);
+            if (!MessageDigest.isEqual(secret, token)) {
+                logger.warn(
+                        "Conexão recusada: o segredo apresentado pelo cliente em '{}' não confere.",
+                        socket.getRemoteSocketAddress()
+                );
+                close(socket);
+                return;
+            }
+            
+            // lê a codificação do terminal, o diretório de trabalho e os
+            // argumentos de linha de comando do cliente
+            String name = input.readUTF();
+            final Charset charset = Charset.isSupported(name) ?
+                    Charset.forName(name) : Charset.forName("UTF-8");
+            final File directory = new File(input.readUTF());
+            final String[] arguments = new String[input.readInt()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = input.readUTF();
+            }
+            socket.setSoTimeout(0);
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket, arguments, directory, charset);
+                }
+            });
+        }
+        catch (IOException | RejectedExecutionException exception) {
+            logger.error(
+                    "Ocorreu um erro na leitura da tarefa do cliente: {}",
+                    exception.getMessage()
+            );
+            close(socket);
+        }
+    }
+
+    /**
+     * Atende a tarefa de um cliente. As mensagens de erro e as mensagens das
+     * primitivas de interação da tarefa são enviadas ao cliente; apenas os
+     * erros de comunicação são registrados.
+     * @param socket Conexão com o cliente.
+     * @param arguments Argumentos de linha de comando do cliente.
+     * @param directory Diretório de trabalho do cliente.
+     * @param charset Codificação do terminal do cliente.
+     */
+    private void serve(Socket socket, String[] arguments, File directory,
+            Charset charset) {
+        try {
+            Channel channel = new Channel(new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream())));
+            PrintStream terminal = new PrintStream(
+                    channel, false, charset.name());
+            int status = execute(arguments, directory, terminal, charset);
+            terminal.flush();
+            channel.exit(status);
+        }
+        catch (IOException exception) {
+            logger.error(
+                    "Ocorreu um erro na comunicação com o cliente: {}",
+                    exception.getMessage()
+            );
+        }
+        finally {
+            close(socket);
+        }
+    }
+
+    /**
+     * Encerra a conexão com o cliente.
+     * @param socket Conexão com o cliente.
+     */
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException exception) {
+            // a conexão já está encerrada
+        }
+    }
+
+    /**
+     * Executa a tarefa descrita pelos argumentos, em um contexto próprio.
+     * @param arguments Argumentos de linha de comando do cliente.
+     * @param directory Diretório de trabalho do cliente.
+     * @param terminal Fluxo de impressão das mensagens e do texto expandido.
+     * @param charset Codificação do terminal do cliente.
+     * @return Estado de saída da tarefa.
+     */
+    private int execute(String[] arguments, File directory,
+            PrintStream terminal, Charset charset) {
+        try {
+            logger.info(
+                    "Executando a tarefa com os argumentos {} no diretório '{}'.",
+                    arguments,
+                    directory
+            );
+            CLIParser parser = new CLIParser(arguments, directory, terminal);
+            Pair<String, File> pair = parser.parse();
+            
+            // os argumentos inválidos já tiveram a ajuda impressa
+            if (pair == null && !parser.isBatch()) {
+                return Client.USAGE;
+            }
+            Library library = getLibrary(
+                    parser.getLibrary(),
+                    parser.getLimit()
+            );
+            return Application.execute(parser, pair, library, terminal,
+                    charset, new HeadlessInteraction(terminal)) ?
+                    Client.SUCCESS : Client.FAILURE;
+        }
+        catch (Exception exception) {
+            
+            // ocorreu uma exceção, envia a mensagem de erro
+            Application.error(terminal, "ERRO: ", exception.getMessage());
+            return Client.FAILURE;
+        }
+    }
+
+    /**
+     * Obtém a biblioteca correspondente ao texto e ao limite informados,
+     * carregando-a caso ainda não esteja disponível. Tarefas simultâneas com
+     * a mesma biblioteca aguardam um único carregamento, sem bloquear as
+     * tarefas com outras bibliotecas; um carregamento que falha não é
+     * mantido. Ao exceder o número máximo de bibliotecas, a biblioteca
+     * carregada há mais tempo sem uso é descartada.
+     * @param text Texto da biblioteca.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     * @return Biblioteca de macros.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    private Library getLibrary(String text, int limit)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        String key = String.valueOf(limit).concat(":").concat(text);
+        while (true) {
+            Entry entry = libraries.get(key);
+            if (entry == null) {
+                Entry created = new Entry();
+                entry = libraries.putIfAbsent(key, created);
+                if (entry == null) {
+                    return load(key, created, text, limit);
+                }
+            }
+            
+            // caso o carregamento tenha falhado, a tarefa tenta carregar a
+            // biblioteca novamente, obtendo a sua própria exceção
+            Library library = entry.await();
+            if (library != null) {
+                entry.used = clock.incrementAndGet();
+                return library;
+            }
+        }
+    }
+
+    /**
+     * Carrega a biblioteca da entrada informada, liberando as tarefas que
+     * aguardam o carregamento. A entrada é removida caso o carregamento
+     * falhe.
+     * @param key Chave da entrada.
+     * @param entry Entrada da biblioteca.
+     * @param text Texto da biblioteca.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     * @return Biblioteca de macros.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    private Library load(String key, Entry entry, String text, int limit)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        logger.info(
+                "Carregando uma nova biblioteca com {} caracteres.",
+                text.length()
+        );
+        try {
+            Library library = Library.load(text, limit);
+            entry.library = library;
+            entry.used = clock.incrementAndGet();
+            return library;
+        }
+        catch (Exception exception) {
+            libraries.remove(key, entry);
+            throw exception;
+        }
+        finally {
+            entry.loaded.countDown();
+            evict();
+        }
+    }
+
+    /**
+     * Descarta as bibliotecas já carregadas utilizadas há mais tempo, até
+     * que o número de bibliotecas não exceda o máximo. As bibliotecas em
+     * carregamento não são descartadas.
+     */
+    private void evict() {
+        while (libraries.size() > LIBRARIES) {
+            Map.Entry<String, Entry> eldest = null;
+            for (Map.Entry<String, Entry> candidate : libraries.entrySet()) {
+                if (candidate.getValue().isDone() && (eldest == null ||
+                        candidate.getValue().used <
+                        eldest.getValue().used)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            libraries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Biblioteca carregada ou em carregamento, com o instante lógico do seu
+     * último uso.
+     */
+    private static class Entry {
+        
+        // sinaliza o término do carregamento
+        private final CountDownLatch loaded = new CountDownLatch(1);
+        
+        // biblioteca carregada, ou nulo caso o carregamento não tenha
+        // terminado ou tenha falhado
+        private volatile Library library;
+        
+        // instante lógico do último uso
+        private volatile long used;
+
+        /**
+         * Verifica se o carregamento da biblioteca terminou.
+         * @return Valor lógico que indica se o carregamento terminou.
+         */
+        boolean isDone() {
+            return loaded.getCount() == 0;
+        }
+
+        /**
+         * Aguarda o término do carregamento da biblioteca.
+         * @return Biblioteca carregada, ou nulo caso o carregamento tenha
+         * falhado.
+         */
+        Library await() {
+            try {
+                loaded.await();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(exception);
+            }
+            return library;
+        }
+        
+    }
+
+    /**
+     * Fluxo de saída que envia ao cliente os blocos de texto da tarefa e, ao
+     * término, o seu estado de saída.
+     */
+    private static class Channel extends OutputStream {
+        
+        // fluxo de dados da conexão
+        private final DataOutputStream stream;
+        
+        // bloco de texto ainda não enviado
+        private final byte[] buffer = new byte[8192];
+        
+        // tamanho do bloco de texto ainda não enviado
+        private int count;
+
+        /**
+         * Construtor.
+         * @param stream Fluxo de dados da conexão.
+         */
+        Channel(DataOutputStream stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Escreve um byte.
+         * @param value Byte a ser escrito.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void write(int value) throws IOException {
+            if (count == buffer.length) {
+                send();
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        /**
+         * Escreve um trecho do vetor de bytes.
+         * @param bytes Vetor de bytes.
+         * @param offset Posição inicial do trecho.
+         * @param length Tamanho do trecho.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            if (length > buffer.length - count) {
+                send();
+            }
+            if (length >= buffer.length) {
+                stream.writeByte(Client.OUTPUT);
+                stream.writeInt(length);
+                stream.write(bytes, offset, length);
+            }
+            else {
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+            }
+        }
+
+        /**
+         * Envia o bloco de texto pendente ao cliente.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void flush() throws IOException {
+            send();
+            stream.flush();
+        }
+
+        /**
+         * Envia o bloco de texto pendente e o estado de saída da tarefa.
+         * @param status Estado de saída da tarefa.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        void exit(int status) throws IOException {
+            send();
+            stream.writeByte(Client.EXIT);
+            stream.writeInt(status);
+            stream.flush();
+        }
+
+        /**
+         * Escreve o bloco de texto pendente no fluxo de dados.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        private void send() throws IOException {
+            if (count > 0) {
+                stream.writeByte(Client.OUTPUT);
+                stream.writeInt(count);
+                stream.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,277 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Interaction;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementa a expansão em lote de vários arquivos independentes. Cada arquivo
+ * é expandido em um contexto próprio, criado a partir da biblioteca de macros
+ * informada, e as tarefas são distribuídas em um conjunto de linhas de
+ * execução com roubo de trabalho.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class BatchProcessor {
+    
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(BatchProcessor.class);
+    
+    // biblioteca de macros compartilhada entre os arquivos
+    private final Library library;
+    
+    // número de linhas de execução
+    private final int parallelism;
+    
+    // interação das primitivas, ou nulo para a interação padrão do contexto
+    private final Interaction interaction;
+
+    /**
+     * Construtor, utilizando uma linha de execução por processador disponível.
+     * @param library Biblioteca de macros compartilhada entre os arquivos.
+     */
+    public BatchProcessor(Library library) {
+        this(library, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construtor.
+     * @param library Biblioteca de macros compartilhada entre os arquivos.
+     * @param parallelism Número de linhas de execução.
+     */
+    public BatchProcessor(Library library, int parallelism) {
+        this(library, parallelism, null);
+    }
+
+    /**
+     * Construtor.
+     * @param library Biblioteca de macros compartilhada entre os arquivos.
+     * @param parallelism Número de linhas de execução.
+     * @param interaction Interação das primitivas de inserção de texto e de
+     * envio de mensagem de todos os arquivos, ou nulo para a interação padrão
+     * de cada contexto.
+     */
+    public BatchProcessor(Library library, int parallelism,
+            Interaction interaction) {
+        this.library = library;
+        this.parallelism = parallelism;
+        this.interaction = interaction;
+    }
+    
+    /**
+     * Obtém os pares de arquivos de entrada e de saída, espelhando a estrutura
+     * das entradas no diretório de saída. Um diretório de entrada tem todos os
+     * seus arquivos incluídos, preservando os caminhos relativos; um arquivo
+     * de entrada é gravado diretamente no diretório de saída. Os arquivos de
+     * saída são verificados antes de qualquer expansão, de modo que dois
+     * arquivos de entrada nunca sejam gravados no mesmo arquivo de saída.
+     * @param inputs Arquivos e diretórios de entrada.
+     * @param directory Diretório de saída.
+     * @return Lista de pares de arquivos de entrada e de saída.
+     * @throws IOException Dois arquivos de entrada correspondem ao mesmo
+     * arquivo de saída.
+     */
+    public static List<Pair<File, File>> mirror(List<File> inputs,
+            File directory) throws IOException {
+        List<Pair<File, File>> jobs = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                List<File> files = new ArrayList<>(
+                        FileUtils.listFiles(input, null, true));
+                Collections.sort(files);
+                String root = input.getAbsolutePath();
+                for (File file : files) {
+                    String relative = file.getAbsolutePath().
+                            substring(root.length() + 1);
+                    jobs.add(new Pair<>(file, new File(directory, relative)));
+                }
+            }
+            else {
+                jobs.add(new Pair<>(input,
+                        new File(directory, input.getName())));
+            }
+        }
+        
+        // verifica se há arquivos de entrada distintos com o mesmo arquivo
+        // de saída, como 'a/x.txt' e 'b/x.txt'
+        Map<File, File> targets = new HashMap<>();
+        for (Pair<File, File> job : jobs) {
+            File target = job.getSecond().getAbsoluteFile();
+            File previous = targets.put(target, job.getFirst());
+            if (previous != null) {
+                logger.error(
+                        "Os arquivos de entrada '{}' e '{}' seriam gravados no mesmo arquivo de saída '{}'.",
+                        previous,
+                        job.getFirst(),
+                        job.getSecond()
+                );
+                throw new IOException(
+                        String.format(
+                                "Os arquivos de entrada '%s' e '%s' seriam gravados no mesmo arquivo de saída '%s'.",
+                                previous.getPath(),
+                                job.getFirst().getPath(),
+                                job.getSecond().getPath()
+                        )
+                );
+            }
+        }
+        return jobs;
+    }
+    
+    /**
+     * Expande os arquivos de entrada, gravando o resultado nos arquivos de
+     * saída correspondentes. Um erro na expansão de um arquivo não interrompe
+     * o processamento dos demais.
+     * @param jobs Lista de pares de arquivos de entrada e de saída.
+     * @return Lista de arquivos de entrada cuja expansão falhou, com as
+     * respectivas exceções.
+     */
+    public List<Pair<File, Exception>> process(List<Pair<File, File>> jobs) {
+        
+        logger.info(
+                "Iniciando a expansão em lote de {} arquivos com {} linhas de execução.",
+                jobs.size(),
+                parallelism
+        );
+        
+        List<Pair<File, Exception>> failures =
+                Collections.synchronizedList(
+                        new ArrayList<Pair<File, Exception>>());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Task(jobs, 0, jobs.size(), failures));
+        }
+        finally {
+            pool.shutdown();
+        }
+        return failures;
+    }
+    
+    /**
+     * Expande um arquivo de entrada em um contexto próprio.
+     * @param job Par de arquivos de entrada e de saída.
+     * @param failures Lista de falhas.
+     */
+    private void expand(Pair<File, File> job,
+            List<Pair<File, Exception>> failures) {
+        try {
+            logger.info(
+                    "Expandindo o arquivo '{}'.",
+                    job.getFirst()
+            );
+            String text = FileUtils.readFileToString(
+                    job.getFirst(), Charset.forName("UTF-8"));
+            try (Writer writer = new OutputStreamWriter(
+                    FileUtils.openOutputStream(job.getSecond()),
+                    Charset.forName("UTF-8"))) {
+                ExpansionContext context = library.createContext();
+                if (interaction != null) {
+                    context.setInteraction(interaction);
+                }
+                MacroExpander.parse(text, context, writer);
+            }
+        }
+        catch (Exception exception) {
+            
+            // o arquivo parcialmente gerado é removido
+            FileUtils.deleteQuietly(job.getSecond());
+            logger.error(
+                    "Ocorreu um erro na expansão do arquivo '{}': {}",
+                    job.getFirst(),
+                    exception.getMessage()
+            );
+            failures.add(new Pair<>(job.getFirst(), exception));
+        }
+    }
+    
+    /**
+     * Tarefa que divide o intervalo de arquivos ao meio até que reste apenas
+     * um arquivo, permitindo o roubo de trabalho entre as linhas de execução.
+     */
+    private class Task extends RecursiveAction {
+        
+        // lista de pares de arquivos de entrada e de saída
+        private final List<Pair<File, File>> jobs;
+        
+        // intervalo de arquivos da tarefa
+        private final int start;
+        private final int end;
+        
+        // lista de falhas
+        private final List<Pair<File, Exception>> failures;
+
+        /**
+         * Construtor.
+         * @param jobs Lista de pares de arquivos de entrada e de saída.
+         * @param start Posição inicial do intervalo (inclusiva).
+         * @param end Posição final do intervalo (exclusiva).
+         * @param failures Lista de falhas.
+         */
+        Task(List<Pair<File, File>> jobs, int start, int end,
+                List<Pair<File, Exception>> failures) {
+            this.jobs = jobs;
+            this.start = start;
+            this.end = end;
+            this.failures = failures;
+        }
+
+        /**
+         * Executa a tarefa.
+         */
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                expand(jobs.get(start), failures);
+            }
+            else {
+                if (end - start > 1) {
+                    int middle = (start + end) >>> 1;
+                    invokeAll(
+                            new Task(jobs, start, middle, failures),
+                            new Task(jobs, middle, end, failures)
+                    );
+                }
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,585 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.Parser;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+
+/**
+ * Implementa um analisador de linha de comando.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class CLIParser {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(CLIParser.class);
+
+    // vetor de argumentos de linha de comando
+    private final String[] arguments;
+    
+    private boolean editor = false;
+    
+    // indica se a execução corresponde a uma expansão em lote
+    private boolean batch = false;
+    
+    // arquivos e diretórios de entrada da expansão em lote
+    private final List<File> inputs = new ArrayList<>();
+    
+    // diretório de saída da expansão em lote
+    private File target;
+    
+    // texto da biblioteca de macros
+    private String library = "";
+    
+    // textos de cada arquivo da biblioteca de macros, indexados pelo nome do
+    // arquivo
+    private final Map<String, String> libraries = new LinkedHashMap<>();
+    
+    // número máximo de chamadas aninhadas ao expansor
+    private int limit = ExpansionContext.DEFAULT_LIMIT;
+    
+    // indica se a expansão dispensa a interface gráfica
+    private boolean headless = false;
+    
+    // indica se a execução corresponde ao serviço de expansão
+    private boolean daemon = false;
+    
+    // indica se a execução corresponde ao serviço HTTP de expansão
+    private boolean server = false;
+    
+    // porta local do serviço de expansão ou do serviço HTTP
+    private int port;
+    
+    // número de expansões simultâneas do serviço HTTP
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    
+    // tamanho máximo do corpo das requisições do serviço HTTP, em bytes
+    private int size = ExpansionServer.DEFAULT_SIZE;
+    
+    // diretório de trabalho do cliente, no caso de uma tarefa recebida pelo
+    // serviço de expansão; nulo na linha de comando
+    private final File directory;
+    
+    // fluxo de impressão da ajuda
+    private final PrintStream terminal;
+
+    /**
+     * Construtor.
+     * @param arguments Argumentos de linha de comando.
+     */
+    public CLIParser(String[] arguments) {
+        this(arguments, null, System.out);
+    }
+
+    /**
+     * Construtor de um analisador dos argumentos de uma tarefa recebida pelo
+     * serviço de expansão. Os caminhos relativos são resolvidos a partir do
+     * diretório de trabalho do cliente, a expansão dispensa a interface
+     * gráfica e as opções que afetam o processo como um todo (editor,
+     * rastreamento e o próprio serviço) não são aceitas.
+     * @param arguments Argumentos da tarefa.
+     * @param directory Diretório de trabalho do cliente.
+     * @param terminal Fluxo de impressão da ajuda.
+     */
+    public CLIParser(String[] arguments, File directory,
+            PrintStream terminal) {
+        this.arguments = arguments;
+        this.directory = directory;
+        this.terminal = terminal;
+    }
+    
+    /**
+     * Realiza a análise dos argumentos de linha de comando e retorna um par
+     * contendo o texto a ser expandido e o arquivo de saída.
+     * @return Um par contendo o texto a ser expandido e o arquivo de saída.
+     * @throws IOException Um dos arquivos de entrada não existe.
+     */
+    public Pair<String, File> parse() throws IOException {
+        
+        // opção de entrada
+        Option input = OptionBuilder.withLongOpt("input").
+                hasArgs().withArgName("lista de arquivos").
+                withDescription("arquivos de entrada").
+                create("i");
+        
+        // opção de saída
+        Option output = OptionBuilder.withLongOpt("output").
+                hasArg().withArgName("arquivo").
+                withDescription("arquivo de saída").create("o");
+        
+        // opção do editor embutido
+        Option ui = OptionBuilder.withLongOpt("editor").
+                withDescription("editor gráfico").create("e");
+        
+        // opção de expansão em lote
+        Option lot = OptionBuilder.withLongOpt("batch").
+                hasArg().withArgName("diretório").
+                withDescription("expansão em lote, cada arquivo de entrada "
+                        + "gerando um arquivo no diretório de saída").
+                create("b");
+        
+        // opção de biblioteca de macros
+        Option prelude = OptionBuilder.withLongOpt("library").
+                hasArgs().withArgName("lista de arquivos").
+                withDescription("biblioteca de macros, carregada antes da "
+                        + "expansão").
+                create("l");
+        
+        // opção do limite de chamadas aninhadas
+        Option depth = OptionBuilder.withLongOpt("depth").
+                hasArg().withArgName("limite").
+                withDescription("número máximo de chamadas aninhadas ao "
+                        + "expansor (padrão: 500)").create("d");
+        
+        // opção de rastreamento da expansão
+        Option trace = OptionBuilder.withLongOpt("trace").
+                withDescription("registra o rastreamento completo da "
+                        + "expansão no arquivo de log").create("t");
+        
+        // opção do serviço de expansão
+        Option service = OptionBuilder.withLongOpt("daemon").
+                hasArg().withArgName("porta").
+                withDescription("serviço de expansão residente, que recebe "
+                        + "as tarefas do cliente na porta local informada, "
+                        + "mantendo a biblioteca de macros carregada").
+                create("s");
+        
+        // opção do serviço HTTP de expansão
+        Option http = OptionBuilder.withLongOpt("server").
+                hasArg().withArgName("porta").
+                withDescription("serviço HTTP de expansão na porta local "
+                        + "informada; cada arquivo da biblioteca é carregado "
+                        + "como uma biblioteca referenciada pelo nome do "
+                        + "arquivo").
+                create("w");
+        
+        // opção do número de expansões simultâneas do serviço HTTP
+        Option threads = OptionBuilder.withLongOpt("concurrency").
+                hasArg().withArgName("número").
+                withDescription("número de expansões simultâneas do serviço "
+                        + "HTTP (padrão: número de processadores)").
+                create("c");
+        
+        // opção do tamanho máximo das requisições do serviço HTTP
+        Option limits = OptionBuilder.withLongOpt("max-size").
+                hasArg().withArgName("bytes").
+                withDescription("tamanho máximo do texto das requisições do "
+                        + "serviço HTTP (padrão: 1048576)").
+                create("m");
+        
+        // opção de expansão sem interface gráfica
+        Option nogui = OptionBuilder.withLongOpt("headless").
+                withDescription("expansão sem interface gráfica; as "
+                        + "mensagens são impressas no fluxo de erros e as "
+                        + "solicitações de texto mantêm o texto inicial "
+                        + "(padrão na expansão em lote)").create("n");
+        
+        Options options = new Options();
+        options.addOption(input);
+        options.addOption(output);
+        options.addOption(ui);
+        options.addOption(lot);
+        options.addOption(prelude);
+        options.addOption(depth);
+        options.addOption(trace);
+        options.addOption(nogui);
+        options.addOption(service);
+        options.addOption(http);
+        options.addOption(threads);
+        options.addOption(limits);
+        
+        try {
+            
+            // parsing dos argumentos
+            Parser parser = new BasicParser();
+            CommandLine line = parser.parse(options, arguments);
+            
+            // o rastreamento é ativado antes de qualquer outra ação, de modo
+            // que todo o processo seja registrado
+            if (line.hasOption("t")) {
+                if (directory != null) {
+                    throw new ParseException("");
+                }
+                enableTracing();
+            }
+            
+            // o limite de chamadas aninhadas deve ser um inteiro positivo
+            if (line.hasOption("d")) {
+                limit = getPositive(line, "depth");
+            }
+            
+            // verifica se é uma chamada ao editor e retorna em caso positivo
+            if (line.hasOption("e")) {
+                if (line.hasOption("n") || directory != null) {
+                    throw new ParseException("");
+                }
+                editor = true;
+                return null;
+            }
+            
+            // as opções de concorrência e de tamanho são válidas apenas no
+            // serviço HTTP
+            if (!line.hasOption("w") &&
+                    (line.hasOption("c") || line.hasOption("m"))) {
+                throw new ParseException("");
+            }
+            
+            // verifica se é o serviço de expansão ou o serviço HTTP; a
+            // biblioteca informada é carregada antes da primeira tarefa
+            if (line.hasOption("s") || line.hasOption("w")) {
+                if (directory != null || line.hasOption("i") ||
+                        line.hasOption("o") || line.hasOption("b") ||
+                        (line.hasOption("s") && line.hasOption("w")) ||
+                        !line.getArgList().isEmpty()) {
+                    throw new ParseException("");
+                }
+                daemon = line.hasOption("s");
+                server = line.hasOption("w");
+                port = getPositive(line, daemon ? "daemon" : "server");
+                if (port > 65535) {
+                    throw new ParseException("");
+                }
+                if (line.hasOption("c")) {
+                    concurrency = getPositive(line, "concurrency");
+                }
+                if (line.hasOption("m")) {
+                    size = getPositive(line, "max-size");
+                }
+                headless = true;
+                readLibrary(line);
+                return null;
+            }
+            
+            // se não é uma chamada ao editor de macros, é necessário verificar
+            // se existe um arquivo de entrada
+            if (!line.hasOption("i")) {
+                throw new ParseException("");
+            }
+            
+            // existem argumentos restantes, o que representa situação de erro
+            if (!line.getArgList().isEmpty()) {
+                throw new ParseException("");
+            }
+            
+            // verifica se é uma expansão em lote; nesse caso, os arquivos não
+            // são concatenados, e cada um deles é expandido separadamente
+            if (line.hasOption("b")) {
+                if (line.hasOption("o")) {
+                    throw new ParseException("");
+                }
+                batch = true;
+                headless = true;
+                target = resolve(line.getOptionValue("batch"));
+                for (String file : line.getOptionValues("input")) {
+                    File entry = resolve(file);
+                    if (!entry.exists()) {
+                        throw new IOException(
+                                String.format(
+                                        "O arquivo '%s' não existe.",
+                                        file
+                                )
+                        );
+                    }
+                    inputs.add(entry);
+                }
+                readLibrary(line);
+                return null;
+            }
+            
+            readLibrary(line);
+            headless = line.hasOption("n") || directory != null;
+            
+            String text = "";
+            File out = line.hasOption("output") ?
+                    resolve(line.getOptionValue("output")) : null;
+            
+            if (out == null) {
+                logger.info(
+                        "A saída será gerada no terminal."
+                );
+            }
+            else {
+                logger.info(
+                        "A saída será gerada no arquivo '{}'.",
+                        out.getName()
+                );
+            }
+            
+            // faz a leitura de todos os arquivos e concatena seu conteúdo em
+            // uma variável
+            logger.info(
+                    "Iniciando a leitura dos arquivos de entrada."
+            );
+            String[] files = line.getOptionValues("input");
+            for (String file : files) {
+                logger.info(
+                        "Lendo arquivo '{}'.",
+                        file
+                );
+                text = text.concat(FileUtils.readFileToString(
+                        resolve(file), Charset.forName("UTF-8"))
+                );
+            }
+            
+            // retorna o par da variável contendo o texto de todos os arquivos
+            // e a referência ao arquivo de saída (podendo este ser nulo)
+            return new Pair<>(text, out);
+            
+        }
+        catch (ParseException exception) {
+            
+            // imprime a ajuda
+            HelpFormatter help = new HelpFormatter();
+            PrintWriter writer = new PrintWriter(terminal);
+            help.printHelp(
+                    writer,
+                    help.getWidth(),
+                    "expander [ --trace ] [ --depth <limite> ] ( --editor | --input <lista de"
+                            + " arquivos> [ --output <arquivo> ] [ --headless ] [ --library"
+                            + " <lista de arquivos> ] | --input <lista de arquivos> --batch"
+                            + " <diretório> [ --library <lista de arquivos> ] | --daemon"
+                            + " <porta> [ --library <lista de arquivos> ] | --server <porta>"
+                            + " [ --concurrency <número> ] [ --max-size <bytes> ] [ --library"
+                            + " <lista de arquivos> ] )",
+                    null,
+                    options,
+                    help.getLeftPadding(),
+                    help.getDescPadding(),
+                    null
+            );
+            writer.flush();
+        }
+
+        // retorna um valor inválido indicando para não prosseguir com o
+        // processo de expansão
+        return null;
+        
+    }
+
+    /**
+     * Lê e concatena os arquivos da biblioteca de macros, caso informados.
+     * @param line Linha de comando analisada.
+     * @throws IOException Um dos arquivos da biblioteca não existe.
+     */
+    private void readLibrary(CommandLine line) throws IOException {
+        if (line.hasOption("l")) {
+            for (String file : line.getOptionValues("library")) {
+                logger.info(
+                        "Lendo biblioteca '{}'.",
+                        file
+                );
+                File entry = resolve(file);
+                String text = FileUtils.readFileToString(
+                        entry, Charset.forName("UTF-8"));
+                library = library.concat(text);
+                libraries.put(entry.getName(), text);
+            }
+        }
+    }
+
+    /**
+     * Obtém o valor inteiro positivo de uma opção.
+     * @param line Linha de comando analisada.
+     * @param name Nome da opção.
+     * @return Valor da opção.
+     * @throws ParseException O valor não é um inteiro positivo.
+     */
+    private int getPositive(CommandLine line, String name)
+            throws ParseException {
+        int value;
+        try {
+            value = Integer.parseInt(line.getOptionValue(name));
+        }
+        catch (NumberFormatException exception) {
+            throw new ParseException("");
+        }
+        if (value <= 0) {
+            throw new ParseException("");
+        }
+        return value;
+    }
+
+    /**
+     * Obtém o arquivo correspondente ao caminho informado, resolvendo os
+     * caminhos relativos a partir do diretório de trabalho do cliente, no
+     * caso de uma tarefa recebida pelo serviço de expansão.
+     * @param path Caminho do arquivo.
+     * @return Arquivo correspondente.
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        if (directory == null || file.isAbsolute()) {
+            return file;
+        }
+        return new File(directory, path);
+    }
+
+    /**
+     * Substitui a configuração de log corrente pelo perfil de rastreamento,
+     * que registra todas as transições da expansão.
+     */
+    private void enableTracing() {
+        URL resource = CLIParser.class.getResource("/log4j2-trace.xml");
+        try {
+            LoggerContext context = (LoggerContext) LogManager.getContext(false);
+            context.setConfigLocation(resource.toURI());
+        }
+        catch (URISyntaxException exception) {
+            logger.error(
+                    "Não foi possível ativar o rastreamento: {}",
+                    exception.getMessage()
+            );
+        }
+    }
+
+    /**
+     * Obtém o número máximo de chamadas aninhadas ao expansor.
+     * @return Número máximo de chamadas aninhadas.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Verifica se é uma chamada ao editor embutido.
+     * @return Valor lógico que indica se é uma chamada ao editor de macros.
+     */
+    public boolean isEditor() {
+        return editor;
+    }
+
+    /**
+     * Verifica se a expansão dispensa a interface gráfica, como na expansão
+     * em lote.
+     * @return Valor lógico que indica se a expansão dispensa a interface
+     * gráfica.
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Verifica se a execução corresponde ao serviço de expansão.
+     * @return Valor lógico que indica se é o serviço de expansão.
+     */
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    /**
+     * Verifica se a execução corresponde ao serviço HTTP de expansão.
+     * @return Valor lógico que indica se é o serviço HTTP.
+     */
+    public boolean isServer() {
+        return server;
+    }
+
+    /**
+     * Obtém o número de expansões simultâneas do serviço HTTP.
+     * @return Número de expansões simultâneas.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Obtém o tamanho máximo do corpo das requisições do serviço HTTP.
+     * @return Tamanho máximo, em bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Obtém os textos de cada arquivo da biblioteca de macros, indexados pelo
+     * nome do arquivo, na ordem em que foram informados.
+     * @return Textos dos arquivos da biblioteca.
+     */
+    public Map<String, String> getLibraries() {
+        return libraries;
+    }
+
+    /**
+     * Obtém a porta local do serviço de expansão ou do serviço HTTP.
+     * @return Porta do serviço.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Verifica se é uma expansão em lote.
+     * @return Valor lógico que indica se é uma expansão em lote.
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Obtém os arquivos e diretórios de entrada da expansão em lote.
+     * @return Arquivos e diretórios de entrada.
+     */
+    public List<File> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Obtém o diretório de saída da expansão em lote.
+     * @return Diretório de saída.
+     */
+    public File getDirectory() {
+        return target;
+    }
+
+    /**
+     * Obtém o texto da biblioteca de macros, vazio caso nenhuma biblioteca
+     * tenha sido informada.
+     * @return Texto da biblioteca de macros.
+     */
+    public String getLibrary() {
+        return library;
+    }
+
+}
@@ -0,0 +1,278 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Testes do serviço de expansão residente e do cliente, comunicando-se por
+ * uma porta local. Os segredos são gravados em um diretório temporário.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class DaemonTest {
+
+    // codificação dos arquivos e do terminal
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    // diretório temporário dos segredos e dos arquivos das tarefas
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    // porta local do serviço
+    private int port;
+    
+    // serviço em teste
+    private Daemon daemon;
+    
+    // linha de execução do serviço
+    private Thread thread;
+
+    /**
+     * Inicia o serviço em uma porta livre e aguarda a gravação do segredo.
+     * @throws Exception Ocorreu um erro na inicialização.
+     */
+    @Before
+    public void start() throws Exception {
+        System.setProperty(Client.DIRECTORY,
+                folder.newFolder("secrets").getPath());
+        try (ServerSocket socket = new ServerSocket(0, 1,
+                InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        daemon = new Daemon(port);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.run();
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        });
+        thread.start();
+        for (int i = 0; i < 100 && !Client.getSecret(port).exists(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Client.getSecret(port).exists());
+    }
+
+    /**
+     * Encerra o serviço, que remove o segredo.
+     * @throws Exception Ocorreu um erro no encerramento.
+     */
+    @After
+    public void stop() throws Exception {
+        daemon.stop();
+        thread.join(10000);
+        assertFalse(Client.getSecret(port).exists());
+        System.clearProperty(Client.DIRECTORY);
+    }
+
+    /**
+     * Uma tarefa com biblioteca é expandida pelo serviço, e o texto expandido
+     * é recebido pelo cliente, tanto no terminal quanto em um arquivo.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void forward() throws Exception {
+        File library = write("library.txt",
+                "\\.define(\\|\\.hello(\\;x;\\).\\ = \\{Hello, \\.x.\\!{" +
+                "\\|\\).\\"
+        );
+        File input = write("input.txt",
+                "\\.hello(\\,daemon,\\).\\"
+        );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream terminal = new PrintStream(bytes, true, "UTF-8");
+        assertEquals(Client.SUCCESS, Client.forward(port, new String[] {
+            "-i", input.getPath(), "-l", library.getPath()
+        }, terminal));
+        assertEquals("Hello, daemon!",
+                new String(bytes.toByteArray(), UTF8).trim());
+        
+        File output = new File(folder.getRoot(), "output.txt");
+        bytes.reset();
+        assertEquals(Client.SUCCESS, Client.forward(port, new String[] {
+            "-i", input.getPath(), "-l", library.getPath(),
+            "-o", output.getPath()
+        }, terminal));
+        assertEquals("Hello, daemon!",
+                new String(Files.readAllBytes(output.toPath()), UTF8));
+        
+        // um arquivo inexistente resulta em uma tarefa com erros
+        bytes.reset();
+        assertEquals(Client.FAILURE, Client.forward(port, new String[] {
+            "-i", new File(folder.getRoot(), "none.txt").getPath()
+        }, terminal));
+    }
+
+    /**
+     * As mensagens das primitivas de interação são recebidas pelo cliente, e
+     * não impressas pelo serviço.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void forwardInteraction() throws Exception {
+        File input = write("input.txt",
+                "\\.send message(\\,Aviso,\\,\\;Mensagem ao cliente;\\).\\" +
+                "\\.input text(\\,Nome,\\,\\;inicial;\\).\\"
+        );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream terminal = new PrintStream(bytes, true, "UTF-8");
+        assertEquals(Client.SUCCESS, Client.forward(port, new String[] {
+            "-i", input.getPath()
+        }, terminal));
+        String text = new String(bytes.toByteArray(), UTF8);
+        assertTrue(text.contains("Aviso"));
+        assertTrue(text.contains("Mensagem ao cliente"));
+        assertTrue(text.contains("'Nome' foi ignorada"));
+        assertTrue(text.contains("inicial"));
+    }
+
+    /**
+     * As conexões ociosas não ocupam as linhas de execução de expansão e são
+     * encerradas pelo serviço após um tempo curto.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void releaseIdleConnections() throws Exception {
+        File input = write("input.txt", "text");
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < Runtime.getRuntime().availableProcessors();
+                    i++) {
+                sockets.add(new Socket(InetAddress.getLoopbackAddress(),
+                        port));
+            }
+            long start = System.nanoTime();
+            assertEquals(Client.SUCCESS, Client.forward(port, new String[] {
+                "-i", input.getPath()
+            }, new PrintStream(new ByteArrayOutputStream())));
+            assertTrue(System.nanoTime() - start <
+                    TimeUnit.SECONDS.toNanos(10));
+            
+            // a conexão ociosa é encerrada sem resposta
+            sockets.get(0).setSoTimeout(10000);
+            assertEquals(-1, sockets.get(0).getInputStream().read());
+        }
+        finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * O segredo é legível apenas pelo usuário, nos sistemas POSIX.
+     * @throws Exception Ocorreu um erro na leitura das permissões.
+     */
+    @Test
+    public void protectSecret() throws Exception {
+        if (FileSystems.getDefault().supportedFileAttributeViews().
+                contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(
+                            Client.getSecret(port).toPath())));
+            assertEquals("rwx------", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(
+                            Client.getSecret(port).getParentFile().toPath())));
+        }
+    }
+
+    /**
+     * Um cliente com um segredo diferente tem a conexão encerrada sem que a
+     * tarefa seja executada.
+     * @throws Exception Ocorreu um erro na gravação dos arquivos.
+     */
+    @Test
+    public void rejectWrongSecret() throws Exception {
+        File input = write("input.txt", "text");
+        File output = new File(folder.getRoot(), "output.txt");
+        byte[] secret = Files.readAllBytes(Client.getSecret(port).toPath());
+        Files.write(Client.getSecret(port).toPath(), "wrong".getBytes(UTF8));
+        try {
+            Client.forward(port, new String[] {
+                "-i", input.getPath(), "-o", output.getPath()
+            }, new PrintStream(new ByteArrayOutputStream()));
+            fail("O serviço aceitou um segredo diferente.");
+        }
+        catch (IOException exception) {
+            // a conexão foi encerrada pelo serviço
+        }
+        assertFalse(output.exists());
+        
+        // o segredo correto volta a ser aceito
+        Files.write(Client.getSecret(port).toPath(), secret);
+        assertEquals(Client.SUCCESS, Client.forward(port, new String[] {
+            "-i", input.getPath(), "-o", output.getPath()
+        }, new PrintStream(new ByteArrayOutputStream())));
+        assertTrue(output.exists());
+    }
+
+    /**
+     * Sem o segredo, o cliente não se conecta ao serviço.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test(expected = IOException.class)
+    public void requireSecret() throws Exception {
+        Client.forward(port + 1, new String[0],
+                new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Grava um arquivo no diretório temporário.
+     * @param name Nome do arquivo.
+     * @param text Conteúdo do arquivo.
+     * @return Arquivo gravado.
+     * @throws IOException Ocorreu um erro na gravação.
+     */
+    private File write(String name, String text) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), text.getBytes(UTF8));
+        return file;
+    }
+    
+}
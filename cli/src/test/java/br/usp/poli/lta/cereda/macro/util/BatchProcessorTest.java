@@ -0,0 +1,99 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Testes da correspondência entre os arquivos de entrada e de saída da
+ * expansão em lote.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class BatchProcessorTest {
+
+    // diretório temporário dos arquivos de entrada e de saída
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Os arquivos de um diretório de entrada mantêm os caminhos relativos no
+     * diretório de saída.
+     * @throws Exception Ocorreu um erro na criação dos arquivos.
+     */
+    @Test
+    public void keepRelativePaths() throws Exception {
+        File input = folder.newFolder("input");
+        File first = create(new File(input, "a/x.txt"));
+        File second = create(new File(input, "b/x.txt"));
+        File output = new File(folder.getRoot(), "output");
+        List<Pair<File, File>> jobs = BatchProcessor.mirror(
+                Arrays.asList(input), output);
+        assertEquals(2, jobs.size());
+        assertEquals(first, jobs.get(0).getFirst());
+        assertEquals(new File(output, "a" + File.separator + "x.txt"),
+                jobs.get(0).getSecond());
+        assertEquals(second, jobs.get(1).getFirst());
+        assertEquals(new File(output, "b" + File.separator + "x.txt"),
+                jobs.get(1).getSecond());
+    }
+
+    /**
+     * Dois arquivos de entrada com o mesmo nome, informados diretamente,
+     * não podem ser gravados no mesmo arquivo de saída.
+     * @throws Exception Ocorreu um erro na criação dos arquivos.
+     */
+    @Test
+    public void rejectDuplicateTargets() throws Exception {
+        File first = create(new File(folder.getRoot(), "a/x.txt"));
+        File second = create(new File(folder.getRoot(), "b/x.txt"));
+        try {
+            BatchProcessor.mirror(Arrays.asList(first, second),
+                    new File(folder.getRoot(), "output"));
+            fail("Os arquivos de entrada foram gravados na mesma saída.");
+        }
+        catch (IOException exception) {
+            // os arquivos de entrada correspondem à mesma saída
+        }
+    }
+
+    /**
+     * Cria um arquivo vazio, incluindo os diretórios intermediários.
+     * @param file Arquivo a ser criado.
+     * @return Arquivo criado.
+     * @throws IOException Ocorreu um erro na criação do arquivo.
+     */
+    private File create(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        return file;
+    }
+    
+}
@@ -0,0 +1,269 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro;
+
+import br.usp.poli.lta.cereda.macro.model.Expander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Sink;
+import br.usp.poli.lta.cereda.macro.model.StringSink;
+import br.usp.poli.lta.cereda.macro.model.WriterSink;
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.SinkWriteException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Classe principal.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class MacroExpander {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(MacroExpander.class);
+
+    /**
+     * Retorna o texto expandido, utilizando o contexto padrão.
+     * @param text Texto a ser analisado e expandido.
+     * @return Texto já devidamente expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (no momento, definido em 500 instâncias).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public static String parse(String text)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        return parse(text, ExpansionContext.getInstance());
+    }
+
+    /**
+     * Restaura o contexto padrão ao seu estado inicial, removendo as macros
+     * globais, os contadores e as entradas memorizadas das expansões
+     * anteriores.
+     */
+    public static void reset() {
+        ExpansionContext.getInstance().reset();
+    }
+
+    /**
+     * Retorna o texto expandido, utilizando o contexto informado. Expansões
+     * com contextos distintos podem ser executadas em paralelo.
+     * @param text Texto a ser analisado e expandido.
+     * @param context Contexto da expansão.
+     * @return Texto já devidamente expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public static String parse(String text, ExpansionContext context)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        
+        // realiza a expansão no texto informado.
+        StringSink output = new StringSink();
+        parse(text, context, output);
+        
+        // retorna o resultado
+        if (logger.isTraceEnabled()) {
+            logger.trace("O texto expandido corresponde a: {}", output);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Expande o texto, utilizando o contexto informado e encaminhando o
+     * resultado ao escritor à medida que a expansão avança; o texto expandido
+     * nunca é mantido integralmente em memória. O escritor é descarregado ao
+     * término da expansão, mas não é fechado.
+     * @param text Texto a ser analisado e expandido.
+     * @param context Contexto da expansão.
+     * @param writer Escritor de destino do texto expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     * @throws IOException Ocorreu um erro na escrita do texto expandido.
+     */
+    public static void parse(String text, ExpansionContext context,
+            Writer writer)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException, IOException {
+        WriterSink output = new WriterSink(writer);
+        try {
+            parse(text, context, output);
+        }
+        catch (SinkWriteException exception) {
+            
+            // o erro de escrita interrompeu a expansão; lança-se o erro
+            // original do escritor
+            throw exception.getCause();
+        }
+        output.flush();
+    }
+
+    /**
+     * Expande o texto, utilizando o contexto informado e acrescentando o
+     * resultado ao destino à medida que a expansão avança.
+     * @param text Texto a ser analisado e expandido.
+     * @param context Contexto da expansão.
+     * @param output Destino do texto expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public static void parse(String text, ExpansionContext context,
+            Sink output)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        
+        // inicia um novo escopo e chama o expansor de macros; é importante
+        // destacar que é necessário criar um novo escopo sempre que uma nova
+        // instância do expansor é definida; ao término do processo de expansão,
+        // o expansor removerá o escopo corrente, mesmo que a expansão seja
+        // interrompida por uma exceção
+        if (logger.isTraceEnabled()) {
+            logger.trace("Iniciando o expansor de macros no texto: {}", text);
+        }
+        context.getScopes().createNewScope();
+        Expander expander = new Expander(context);
+        
+        // realiza a expansão no texto informado.
+        expander.parse(text, output);
+    }
+
+}
@@ -0,0 +1,283 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+
+/**
+ * Representa o valor de um argumento de uma chamada de macro paramétrica. O
+ * argumento pode ser expandido no momento da chamada ou apenas na sua primeira
+ * referência (chamada por necessidade); neste último caso, a expansão ocorre
+ * sobre os escopos visíveis no momento da chamada, e o resultado é memorizado
+ * para as referências seguintes.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Argument {
+
+    // argumento compilado, ainda não expandido
+    private Program program;
+    
+    // contexto da chamada
+    private ExpansionContext context;
+    
+    // cópia dos escopos visíveis no momento da chamada
+    private ScopeController scopes;
+    
+    // número de chamadas aninhadas ao expansor no momento da chamada
+    private int calls;
+    
+    // valor do argumento já expandido
+    private String value;
+    
+    // valor do argumento expandido e compilado
+    private Program expansion;
+    
+    // registro da expansão adiada, caso haja uma chamada memorizável em
+    // andamento
+    private MemoCache.Recording recording;
+
+    /**
+     * Construtor de um argumento já expandido.
+     * @param value Valor do argumento já expandido.
+     */
+    public Argument(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Construtor de um argumento cuja expansão é adiada até a sua primeira
+     * referência. Os escopos criados após a chamada não são visíveis durante
+     * a expansão do argumento.
+     * @param program Argumento compilado.
+     * @param context Contexto da chamada.
+     */
+    public Argument(Program program, ExpansionContext context) {
+        this.program = program;
+        this.context = context;
+        this.scopes = context.getScopes().snapshot();
+        this.calls = context.getCalls();
+    }
+
+    /**
+     * Verifica se o argumento já foi expandido.
+     * @return Valor lógico que indica se o argumento já foi expandido.
+     */
+    public boolean isExpanded() {
+        return value != null;
+    }
+
+    /**
+     * Obtém o valor do argumento, expandindo-o caso seja a primeira
+     * referência.
+     * @return Valor do argumento já expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public String getValue()
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        
+        if (value == null) {
+            StringSink output = new StringSink();
+            Expander.execute(expand(output));
+            setValue(output.toString());
+        }
+        return value;
+    }
+
+    /**
+     * Obtém o valor do argumento sem expandi-lo.
+     * @return Valor do argumento já expandido, ou nulo caso a expansão ainda
+     * não tenha ocorrido.
+     */
+    String peekValue() {
+        return value;
+    }
+
+    /**
+     * Obtém o valor do argumento já compilado, sem expandi-lo.
+     * @return Valor do argumento expandido e compilado, ou nulo caso a
+     * expansão ainda não tenha ocorrido.
+     */
+    Program peekExpansion() {
+        if (expansion == null && value != null) {
+            expansion = Compiler.compile(value);
+        }
+        return expansion;
+    }
+
+    /**
+     * Obtém o texto original do argumento adiado.
+     * @return Texto original, ou nulo caso o argumento já tenha sido
+     * expandido.
+     */
+    String getSource() {
+        return program == null ? null : program.getSource();
+    }
+
+    /**
+     * Obtém o valor do argumento já compilado, expandindo-o caso seja a
+     * primeira referência. O parâmetro é expandido novamente a cada
+     * referência, mas a compilação do seu valor ocorre apenas uma vez.
+     * @return Valor do argumento expandido e compilado.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public Program getExpansion()
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        if (expansion == null) {
+            expansion = Compiler.compile(getValue());
+        }
+        return expansion;
+    }
+
+    /**
+     * Prepara a expansão adiada do argumento. O argumento é expandido em um
+     * contexto que enxerga apenas os escopos existentes no momento da chamada,
+     * e com o mesmo número de chamadas aninhadas, tal como na expansão
+     * imediata.
+     * @param output Destino do valor do argumento.
+     * @return Quadro da expansão do argumento.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     */
+    Frame expand(Sink output) throws PotentialInfiniteRecursionException {
+        ExpansionContext snapshot = new ExpansionContext(
+                scopes,
+                context.getCounters(),
+                context.getLimit(),
+                context.getMemo()
+        );
+        snapshot.setCalls(calls);
+        snapshot.setInteraction(context.getInteraction());
+        snapshot.setRetrieval(context.getRetrieval());
+        Sink destination = output;
+        recording = context.getMemo().defer(scopes.size(), calls, output);
+        if (recording != null) {
+            destination = recording;
+        }
+        snapshot.getScopes().createNewScope();
+        return new ProgramFrame(snapshot, program, destination);
+    }
+
+    /**
+     * Define o valor do argumento, obtido a partir da sua expansão adiada.
+     * @param value Valor do argumento já expandido.
+     */
+    void setValue(String value) {
+        this.value = value;
+        if (recording != null) {
+            context.getMemo().finish(recording);
+            recording = null;
+        }
+        
+        // as referências à chamada não são mais necessárias
+        this.program = null;
+        this.context = null;
+        this.scopes = null;
+    }
+
+    /**
+     * Fornece uma representação textual do argumento.
+     * @return Representação textual do argumento.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Argumento: {");
+        if (value != null) {
+            sb.append("valor = ").append(value).append(" }");
+        }
+        else {
+            sb.append("adiado = ").append(program.getSource()).append(" }");
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,275 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Quadro de execução de uma chamada de macro (ou de uma referência a um
+ * parâmetro). Os argumentos são preparados um a um, a macro é expandida em um
+ * novo escopo contendo os parâmetros e, por fim, o quadro é concluído.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+class CallFrame extends Frame {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(CallFrame.class);
+    
+    // contexto da expansão
+    private final ExpansionContext context;
+    
+    // macro a ser expandida
+    private final Macro execute;
+    
+    // nó contendo os argumentos da chamada
+    private final Node node;
+    
+    // destino do texto expandido
+    private final Sink output;
+    
+    // parâmetros já convertidos em macros simples
+    private final List<Macro> macros;
+    
+    // destino da expansão do argumento corrente, ou do valor do parâmetro
+    private StringSink value;
+    
+    // indica se o corpo da macro já foi iniciado
+    private boolean started;
+    
+    // registro da chamada, caso esta seja memorizável
+    private MemoCache.Recording recording;
+
+    /**
+     * Construtor.
+     * @param context Contexto da expansão.
+     * @param execute Macro a ser expandida.
+     * @param node Nó contendo os argumentos da chamada.
+     * @param output Destino do texto expandido.
+     */
+    CallFrame(ExpansionContext context, Macro execute, Node node,
+            Sink output) {
+        this.context = context;
+        this.execute = execute;
+        this.node = node;
+        this.output = output;
+        this.macros = new ArrayList<>(node.getParameters().size());
+    }
+
+    /**
+     * Executa o próximo passo da chamada: a expansão de um argumento, a
+     * expansão adiada do valor do parâmetro ou a expansão do corpo da macro.
+     * @return Quadro da expansão aninhada, ou nulo caso a chamada tenha sido
+     * concluída.
+     */
+    @Override
+    Frame step()
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+
+        if (started) {
+            
+            // o valor do parâmetro acabou de ser expandido, resta executá-lo
+            if (value != null) {
+                execute.getArgument().setValue(value.toString());
+                value = null;
+                return new ProgramFrame(
+                        context,
+                        execute.getArgument().getExpansion(),
+                        output
+                );
+            }
+            
+            // o corpo da macro foi expandido, a chamada está concluída
+            if (recording != null) {
+                context.getMemo().finish(recording);
+            }
+            return null;
+        }
+        
+        // os parâmetros serão convertidos para macros em um escopo local; os
+        // argumentos literais são o seu próprio valor, os argumentos cujas
+        // expansões não têm efeitos observáveis são expandidos apenas na
+        // primeira referência ao parâmetro correspondente (e nunca, caso o
+        // parâmetro não seja referenciado), enquanto os demais são expandidos
+        // de imediato, preservando a ordem dos efeitos
+        Map<Integer, Slice> parameters = node.getParameters();
+        if (value != null) {
+            macros.add(
+                    new Macro(
+                            execute.getParameterSignature(macros.size() + 1),
+                            new Argument(value.toString())
+                    )
+            );
+            value = null;
+        }
+        while (macros.size() < parameters.size()) {
+            
+            int i = macros.size() + 1;
+            Program program = node.getArgument(i);
+            if (program.isLiteral()) {
+                StringSink literal = new StringSink();
+                program.appendLiteral(literal);
+                macros.add(
+                        new Macro(
+                                execute.getParameterSignature(i),
+                                new Argument(literal.toString())
+                        )
+                );
+            }
+            else if (program.isDeferrable(context.getScopes())) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "A expansão do parâmetro '{}' da macro '{}' será adiada até a sua primeira referência.",
+                            execute.getParameters().get(i),
+                            node.getText()
+                    );
+                }
+                macros.add(
+                        new Macro(
+                                execute.getParameterSignature(i),
+                                new Argument(program, context)
+                        )
+                );
+            }
+            else {
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Estou expandindo o parâmetro '{}' da macro '{}' (os parâmetros transformam-se em macros simples no escopo da macro paramétrica).",
+                            execute.getParameters().get(i),
+                            node.getText()
+                    );
+                }
+                context.getScopes().createNewScope();
+                value = new StringSink();
+                return new ProgramFrame(context, program, value);
+            }
+        }
+
+        // exibe uma mensagem informando que os parâmetros, já expandidos e
+        // transformados em macros simples, serão adicionados ao escopo corrente
+        if (!parameters.isEmpty()) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Os parâmetros '{}' foram transformados em macros simples para a expansão do corpo da macro {}. Vou adicioná-los ao escopo corrente.",
+                        parameters,
+                        node.getText()
+                );
+            }
+        }
+
+        // o corpo de uma macro pura é expandido apenas uma vez para os
+        // mesmos argumentos, enquanto as macros externas consultadas na
+        // expansão original permanecerem visíveis; caso contrário, a chamada
+        // é registrada e o corpo, expandido através do registro
+        Sink destination = output;
+        MemoCache memo = context.getMemo();
+        if (memo.isEnabled() && execute.getProgram() != null &&
+                execute.getProgram().isMemoizable()) {
+            MemoCache.Key key = new MemoCache.Key(execute, macros);
+            Rope cached = memo.lookup(key, context);
+            if (cached != null) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Reutilizando a expansão memorizada da macro '{}'.",
+                            node.getText()
+                    );
+                }
+                output.append(cached);
+                return null;
+            }
+            recording = memo.begin(
+                    key,
+                    context.getScopes().size(),
+                    context.getCalls(),
+                    output
+            );
+            destination = recording;
+        }
+
+        // cria-se um novo escopo, adicionam-se as macros simples criadas
+        // anteriormente a partir dos parâmetros informados e expande-se o corpo
+        // da macro em questão
+        context.getScopes().createNewScope();
+        for (Macro m : macros) {
+            context.getScopes().addMacroToCurrentScope(m);
+        }
+        started = true;
+
+        // o corpo compilado é executado diretamente, os parâmetros executam o
+        // valor compilado do argumento (expandindo-o antes, caso seja a
+        // primeira referência), e apenas as macros sem representação compilada
+        // têm seu corpo analisado
+        if (execute.getProgram() != null) {
+            return new ProgramFrame(
+                    context,
+                    execute.getProgram(),
+                    destination
+            );
+        }
+        else {
+            Argument argument = execute.getArgument();
+            if (argument != null) {
+                if (argument.isExpanded()) {
+                    return new ProgramFrame(
+                            context,
+                            argument.getExpansion(),
+                            output
+                    );
+                }
+                else {
+                    value = new StringSink();
+                    return argument.expand(value);
+                }
+            }
+            else {
+                return new ProgramFrame(
+                        context,
+                        Compiler.compile(execute.getBody()),
+                        output
+                );
+            }
+        }
+        
+    }
+
+}
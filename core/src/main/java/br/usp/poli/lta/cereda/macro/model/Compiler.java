@@ -0,0 +1,269 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.util.MacroUtils;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compila o texto fornecido em uma sequência de nós que pode ser executada
+ * repetidas vezes pelo expansor de macros sem uma nova análise sintática.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Compiler {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(Compiler.class);
+
+    /**
+     * Compila o texto fornecido.
+     * @param input Texto a ser compilado.
+     * @return Texto compilado.
+     */
+    public static Program compile(String input) {
+        return compile(new Slice(input), Collections.<String>emptyList());
+    }
+
+    /**
+     * Compila o trecho de texto fornecido. Os trechos literais e os
+     * argumentos do programa resultante são trechos do mesmo texto de origem,
+     * de modo que os argumentos aninhados são compilados sem cópias.
+     * @param input Trecho a ser compilado.
+     * @return Texto compilado.
+     */
+    public static Program compile(Slice input) {
+        return compile(input, Collections.<String>emptyList());
+    }
+
+    /**
+     * Compila o corpo de uma macro paramétrica. As chamadas simples cujo nome
+     * coincide com um dos parâmetros da macro são transformadas em referências
+     * diretas a parâmetros.
+     * @param input Trecho a ser compilado.
+     * @param names Nomes dos parâmetros da macro.
+     * @return Texto compilado.
+     */
+    public static Program compile(Slice input, Collection<String> names) {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("Estou compilando: {}", input);
+        }
+
+        // texto compilado, inicialmente vazio
+        Program program = new Program(input);
+
+        // analisador léxico restrito ao trecho de entrada; as posições dos
+        // símbolos léxicos são relativas ao texto de origem, e as mensagens
+        // de erro as informam a partir do início do trecho
+        String source = input.getSource();
+        int offset = input.getStart();
+        Lexer lexer = new Lexer(source, offset, input.getEnd(), false);
+
+        // variáveis auxiliares que tratam do nome da macro, um mapa contendo
+        // os parâmetros da macro e o total de parâmetros
+        String macro = "";
+        Map<Integer, Slice> parameters = new HashMap<>();
+        int total = 0;
+
+        try {
+            
+            // consome os símbolos léxicos até o término do texto de entrada
+            Token token = lexer.next();
+            while (token.getType() != TokenType.END) {
+
+                switch (token.getType()) {
+
+                    case TEXT:
+
+                        // trecho literal, copiado verbatim para a saída
+                        program.add(new Node(new Slice(source,
+                                token.getStart(), token.getEnd())));
+                        break;
+
+                    case NAME:
+
+                        // uma nova macro, as variáveis auxiliares são
+                        // devidamente reinicializadas
+                        macro = source.substring(
+                                token.getStart(), token.getEnd());
+                        parameters = new HashMap<>();
+                        total = 0;
+                        if (logger.isTraceEnabled()) {
+                            logger.trace(
+                                    "Encontrei a macro '{}' na posição {}.",
+                                    macro,
+                                    token.getStart() - offset
+                            );
+                        }
+                        break;
+
+                    case ARGUMENT:
+
+                        // o parâmetro é adicionado no mapa de parâmetros,
+                        // indexado por sua posição na chamada
+                        total++;
+                        parameters.put(total, new Slice(source,
+                                token.getStart(), token.getEnd()));
+                        break;
+
+                    case CLOSE:
+
+                        if (logger.isTraceEnabled()) {
+                            logger.trace(
+                                    "Encontrei o símbolo de fechamento de macro na posição {}, resultando na macro '{}' com os parâmetros '{}'.",
+                                    token.getStart() - offset,
+                                    macro,
+                                    parameters
+                            );
+                        }
+
+                        // faz a limpeza no nome da macro
+                        macro = MacroUtils.sanitize(macro);
+
+                        // é feita uma análise para determinar se a macro
+                        // encontrada é uma primitiva, uma referência a um
+                        // parâmetro da macro corrente ou uma chamada
+                        // convencional
+                        Primitive result = MacroUtils.
+                                checkPrimitive(macro, parameters);
+                        NodeType type;
+                        if (result != Primitive.NONE) {
+                            type = NodeType.PRIMITIVE;
+                        }
+                        else {
+                            if (parameters.isEmpty() &&
+                                    names.contains(macro)) {
+                                type = NodeType.PARAMETER;
+                            }
+                            else {
+                                type = NodeType.MACRO;
+                            }
+                        }
+                        program.add(
+                                new Node(type, macro, result, parameters)
+                        );
+                        break;
+
+                    case ERROR:
+                        fail(token, offset);
+                        break;
+
+                    case INCOMPLETE:
+
+                        // a análise do texto encerrou-se durante o
+                        // processamento de uma macro
+                        throw new MalformedMacroException(
+                                "A análise do texto encerrou prematuramente durante o processamento de uma macro."
+                        );
+
+                }
+
+                token = lexer.next();
+            }
+
+        }
+        catch (MalformedMacroException | MalformedArgumentException exception) {
+            
+            // o erro sintático não é lançado de imediato; ele é registrado
+            // como um nó e será lançado apenas quando a execução alcançar a
+            // sua posição, preservando os efeitos das macros anteriores
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Erro sintático registrado para a execução: {}",
+                        exception.getMessage()
+                );
+            }
+            program.add(new Node(exception));
+        }
+
+        // retorna o texto compilado
+        return program;
+        
+    }
+
+    /**
+     * Lança a exceção correspondente a um erro sintático encontrado pelo
+     * analisador léxico.
+     * @param token Símbolo léxico de erro.
+     * @param offset Posição inicial do trecho compilado no texto de origem.
+     * @throws MalformedMacroException A macro está mal formada.
+     * @throws MalformedArgumentException Um argumento da macro está mal
+     * formado.
+     */
+    private static void fail(Token token, int offset)
+            throws MalformedMacroException, MalformedArgumentException {
+        int cursor = token.getStart() - offset;
+        switch (token.getState()) {
+            case Lexer.OPENING:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Encontrei '(' na posição %d. Ele não pode ser delimitador pois indica o início da lista de parâmetros.",
+                                cursor
+                        )
+                );
+            case Lexer.CLOSING:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Encontrei uma macro mal formada na posição %d. O símbolo de fechamento era esperado.",
+                                cursor
+                        )
+                );
+            case Lexer.ARGUMENTS:
+                throw new MalformedArgumentException(
+                        String.format(
+                                "Encontrei um argumento mal formado (símbolo de abertura esperado) na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.ARGUMENT_CLOSING:
+                throw new MalformedArgumentException(
+                        String.format(
+                                "Encontrei um argumento mal formado (término esperado) na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.SEPARATOR:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Era esperado o término da definição dos parâmetros da macro ou o separador de parâmetros na posição %d.",
+                                cursor
+                        )
+                );
+            default:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Encontrei uma macro mal formada (delimitador de fechamento '%c' da macro paramétrica era esperado) na posição %d.",
+                                token.getDelimiter(),
+                                cursor
+                        )
+                );
+        }
+    }
+
+}
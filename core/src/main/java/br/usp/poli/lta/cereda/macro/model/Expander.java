@@ -0,0 +1,332 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Classe utilitária principal, responsável pela expansão do texto fornecido.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 1.0
+ */
+public class Expander {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(Expander.class);
+    
+    // contexto da expansão
+    private final ExpansionContext context;
+
+    /**
+     * Construtor de um expansor que utiliza o contexto padrão.
+     */
+    public Expander() {
+        this(ExpansionContext.getInstance());
+    }
+
+    /**
+     * Construtor.
+     * @param context Contexto da expansão.
+     */
+    public Expander(ExpansionContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Obtém o contexto da expansão.
+     * @return Contexto da expansão.
+     */
+    public ExpansionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Expande o texto fornecido. 
+     * @param input Texto a ser expandido.
+     * @return Texto já devidamente expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (no momento, definido em 500 instâncias).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public String parse(String input)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException, 
+            TextRetrievalException {
+
+        StringSink output = new StringSink();
+        parse(input, output);
+        return output.toString();
+        
+    }
+
+    /**
+     * Expande o texto fornecido, acrescentando o resultado ao destino
+     * informado.
+     * @param input Texto a ser expandido.
+     * @param output Destino do texto expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (no momento, definido em 500 instâncias).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public void parse(String input, Sink output)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException, 
+            TextRetrievalException {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("Estou analisando: {}", input);
+        }
+        
+        // o texto é compilado e executado em seguida; os erros sintáticos são
+        // lançados apenas quando a execução alcança a sua posição
+        run(Compiler.compile(input), output);
+        
+    }
+
+    /**
+     * Executa o texto compilado fornecido.
+     * @param program Texto compilado a ser executado.
+     * @return Texto já devidamente expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (no momento, definido em 500 instâncias).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public String run(Program program)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException, 
+            TextRetrievalException {
+
+        StringSink output = new StringSink();
+        run(program, output);
+        return output.toString();
+        
+    }
+
+    /**
+     * Executa o texto compilado fornecido, acrescentando o resultado ao destino
+     * informado.
+     * @param program Texto compilado a ser executado.
+     * @param output Destino do texto expandido.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (no momento, definido em 500 instâncias).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public void run(Program program, Sink output)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException, 
+            TextRetrievalException {
+
+        // o texto compilado é executado pelo laço de quadros; cada chamada
+        // aninhada ocupa um quadro na pilha explícita, e não na pilha da
+        // linha de execução; o escopo corrente, criado pelo chamador, pertence
+        // à execução e é removido ao seu término
+        ScopeController scopes = context.getScopes();
+        int size = Math.max(scopes.size() - 1, 0);
+        int calls = context.getCalls();
+        MemoCache.Recording recording = context.getMemo().getRecording();
+        try {
+            execute(new ProgramFrame(context, program, output));
+        }
+        finally {
+            
+            // os escopos, o número de chamadas aninhadas e os registros de
+            // memorização das expansões interrompidas por uma exceção são
+            // descartados, de modo que as expansões seguintes no mesmo
+            // contexto não sejam afetadas
+            scopes.removeScopesAbove(size);
+            context.setCalls(calls);
+            context.getMemo().restore(recording);
+            
+        }
+
+    }
+
+    /**
+     * Executa o quadro informado e todos os quadros aninhados gerados a partir
+     * dele, até a conclusão do quadro inicial. A profundidade das expansões
+     * aninhadas é limitada apenas pelo limite do contexto.
+     * @param frame Quadro inicial.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial). Ela é determinada através do número de escopos
+     * abertos (definido pelo limite do contexto).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * global de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador global de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    static void execute(Frame frame)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException, 
+            TextRetrievalException {
+        
+        // o quadro no topo da pilha é executado passo a passo; um passo pode
+        // empilhar um quadro aninhado, que é executado até o fim antes que o
+        // quadro anterior prossiga
+        Stack<Frame> frames = new Stack<>();
+        frames.push(frame);
+        while (!frames.isEmpty()) {
+            Frame next = frames.top().step();
+            if (next != null) {
+                frames.push(next);
+            }
+            else {
+                frames.pop();
+            }
+        }
+        
+    }
+
+}
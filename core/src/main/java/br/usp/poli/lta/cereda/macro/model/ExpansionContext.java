@@ -0,0 +1,254 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.util.Counters;
+import br.usp.poli.lta.cereda.macro.util.HeadlessInteraction;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import br.usp.poli.lta.cereda.macro.util.ServiceUtils;
+
+/**
+ * Representa o contexto de uma expansão, contendo a pilha de escopos, os
+ * contadores, o cache das chamadas puras e os limites de execução. Expansões
+ * com contextos distintos não compartilham estado e, portanto, podem ser
+ * executadas em paralelo; um mesmo contexto, no entanto, não deve ser
+ * utilizado por mais de uma linha de execução ao mesmo tempo. Cada expansão
+ * devolve o contexto ao estado em que o encontrou, mesmo quando interrompida
+ * por uma exceção, exceto pelas definições globais e pelos contadores; o
+ * contexto pode ser restaurado integralmente entre duas expansões.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ExpansionContext {
+    
+    // limite padrão de chamadas aninhadas ao expansor
+    public static final int DEFAULT_LIMIT = 500;
+    
+    // contexto padrão, compartilhado pelas expansões que não informam um
+    // contexto próprio
+    private static final ExpansionContext instance = new ExpansionContext(
+            ScopeController.getInstance(), Counters.getInstance());
+    
+    // controlador de escopo
+    private final ScopeController scopes;
+    
+    // gerenciador de contadores
+    private final Counters counters;
+    
+    // número máximo de chamadas aninhadas ao expansor
+    private final int limit;
+    
+    // cache das chamadas de macros puras
+    private final MemoCache memo;
+    
+    // número corrente de chamadas aninhadas ao expansor
+    private int calls;
+    
+    // interação com o usuário das primitivas de inserção de texto e de
+    // envio de mensagem
+    private Interaction interaction;
+    
+    // obtenção de documentos da primitiva de obtenção de texto a partir de
+    // uma URL
+    private Retrieval retrieval;
+
+    /**
+     * Construtor de um novo contexto, vazio e isolado dos demais.
+     */
+    public ExpansionContext() {
+        this(new ScopeController(), new Counters(), DEFAULT_LIMIT);
+    }
+
+    /**
+     * Construtor de um novo contexto, vazio e isolado dos demais.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     */
+    public ExpansionContext(int limit) {
+        this(new ScopeController(), new Counters(), limit);
+    }
+
+    /**
+     * Construtor.
+     * @param scopes Controlador de escopo.
+     * @param counters Gerenciador de contadores.
+     */
+    public ExpansionContext(ScopeController scopes, Counters counters) {
+        this(scopes, counters, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Construtor.
+     * @param scopes Controlador de escopo.
+     * @param counters Gerenciador de contadores.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     */
+    public ExpansionContext(ScopeController scopes, Counters counters,
+            int limit) {
+        this(scopes, counters, limit, new MemoCache());
+    }
+
+    /**
+     * Construtor.
+     * @param scopes Controlador de escopo.
+     * @param counters Gerenciador de contadores.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     * @param memo Cache das chamadas de macros puras.
+     */
+    public ExpansionContext(ScopeController scopes, Counters counters,
+            int limit, MemoCache memo) {
+        this.scopes = scopes;
+        this.counters = counters;
+        this.limit = limit;
+        this.memo = memo;
+        this.calls = 0;
+        this.interaction = Boolean.getBoolean("java.awt.headless") ||
+                Services.interaction == null ?
+                new HeadlessInteraction() : Services.interaction;
+        this.retrieval = Services.retrieval;
+    }
+
+    /**
+     * Obtém o contexto padrão, compartilhado pelas expansões que não informam
+     * um contexto próprio.
+     * @return Contexto padrão.
+     */
+    public static ExpansionContext getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtém o controlador de escopo.
+     * @return Controlador de escopo.
+     */
+    public ScopeController getScopes() {
+        return scopes;
+    }
+
+    /**
+     * Obtém o gerenciador de contadores.
+     * @return Gerenciador de contadores.
+     */
+    public Counters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Obtém o cache das chamadas de macros puras.
+     * @return Cache das chamadas de macros puras.
+     */
+    public MemoCache getMemo() {
+        return memo;
+    }
+
+    /**
+     * Obtém o número máximo de chamadas aninhadas ao expansor.
+     * @return Número máximo de chamadas aninhadas.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Obtém o número corrente de chamadas aninhadas ao expansor.
+     * @return Número corrente de chamadas aninhadas.
+     */
+    public int getCalls() {
+        return calls;
+    }
+
+    /**
+     * Define o número corrente de chamadas aninhadas ao expansor.
+     * @param calls Número corrente de chamadas aninhadas.
+     */
+    public void setCalls(int calls) {
+        this.calls = calls;
+    }
+
+    /**
+     * Obtém a interação com o usuário. Por padrão, a interação é a fornecida
+     * pelo módulo do editor, com as janelas da interface gráfica, caso este
+     * esteja presente e a propriedade de sistema 'java.awt.headless' não seja
+     * verdadeira; caso contrário, as mensagens são impressas no fluxo de
+     * erros.
+     * @return Interação com o usuário.
+     */
+    public Interaction getInteraction() {
+        return interaction;
+    }
+
+    /**
+     * Define a interação com o usuário.
+     * @param interaction Interação com o usuário.
+     */
+    public void setInteraction(Interaction interaction) {
+        this.interaction = interaction;
+    }
+
+    /**
+     * Obtém a obtenção de documentos externos. Por padrão, a obtenção é a
+     * fornecida pelo módulo de rede, caso este esteja presente.
+     * @return Obtenção de documentos, ou nulo caso não haja um módulo que a
+     * forneça.
+     */
+    public Retrieval getRetrieval() {
+        return retrieval;
+    }
+
+    /**
+     * Define a obtenção de documentos externos.
+     * @param retrieval Obtenção de documentos, ou nulo para impedir o acesso
+     * a documentos externos.
+     */
+    public void setRetrieval(Retrieval retrieval) {
+        this.retrieval = retrieval;
+    }
+
+    /**
+     * Restaura o contexto ao seu estado inicial, removendo todos os escopos,
+     * inclusive o global, os contadores e as entradas memorizadas. Deve ser
+     * utilizado apenas entre expansões, como em processos de longa duração
+     * que reutilizam o mesmo contexto.
+     */
+    public void reset() {
+        scopes.clear();
+        counters.clear();
+        memo.clear();
+        memo.restore(null);
+        calls = 0;
+    }
+    
+    /**
+     * Mantém as implementações padrão fornecidas pelos módulos presentes no
+     * classpath, procuradas uma única vez.
+     */
+    private static class Services {
+        
+        // interação fornecida pelo módulo do editor
+        static final Interaction interaction =
+                ServiceUtils.find(Interaction.class);
+        
+        // obtenção de documentos fornecida pelo módulo de rede
+        static final Retrieval retrieval =
+                ServiceUtils.find(Retrieval.class);
+        
+    }
+    
+}
@@ -17,9 +17,8 @@
 * for more details.
 * 
 **/
-package br.usp.poli.lta.cereda.macro;
+package br.usp.poli.lta.cereda.macro.model;
 
-import br.usp.poli.lta.cereda.macro.model.Expander;
 import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
 import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
 import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
@@ -32,30 +31,27 @@ import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
 import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
 import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
 import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
-import br.usp.poli.lta.cereda.macro.util.DisplayUtils;
-import br.usp.poli.lta.cereda.macro.util.ScopeController;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 /**
- * Classe principal.
+ * Representa um quadro de execução do expansor de macros. Os quadros são
+ * mantidos em uma pilha explícita, alocada no heap, de modo que a profundidade
+ * das chamadas aninhadas não é limitada pela pilha da linha de execução, mas
+ * apenas pelo limite definido no contexto da expansão.
  * @author Paulo Roberto Massa Cereda
- * @version 1.0
- * @since 1.0
+ * @version 2.0
+ * @since 2.0
  */
-public class MacroExpander {
-
-    // logger para gerenciamento do processo de expansão das macros
-    private static final Logger logger =
-            LogManager.getLogger(MacroExpander.class);
+abstract class Frame {
 
     /**
-     * Retorna o texto expandido.
-     * @param text Texto a ser analisado e expandido.
-     * @return Texto já devidamente expandido.
+     * Executa o próximo passo do quadro. Quando o passo requer uma expansão
+     * aninhada, o quadro correspondente é retornado e executado até o fim
+     * antes do próximo passo deste quadro.
+     * @return Quadro da expansão aninhada, ou nulo caso este quadro tenha sido
+     * concluído.
      * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
      * infinita (em potencial). Ela é determinada através do número de escopos
-     * abertos (no momento, definido em 500 instâncias).
+     * abertos (definido pelo limite do contexto).
      * @throws MalformedArgumentException Um argumento de uma macro paramétrica
      * está mal formado (provavelmente erro sintático).
      * @throws ArgumentNumberMismatchException O número de argumentos requerido
@@ -78,32 +74,13 @@ public class MacroExpander {
      * gerenciador global de contadores.
      * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
      */
-    public static String parse(String text)
+    abstract Frame step()
             throws PotentialInfiniteRecursionException,
             MalformedArgumentException, ArgumentNumberMismatchException,
             InvalidIntegerRangeException, MacroDefinitionException,
             DuplicateMacroException, MacroNotFoundException,
             MalformedMacroException, InvalidConditionValueException,
             DuplicateCounterException, CounterNotFoundException,
-            TextRetrievalException {
-        
-        // inicia a configuração de layout da interface gráfica
-        DisplayUtils.init();
-        
-        // inicia um novo escopo e chama o expansor de macros; é importante
-        // destacar que é necessário criar um novo escopo sempre que uma nova
-        // instância do expansor é definida; ao término do processo de expansão,
-        // o expansor removerá o escopo corrente
-        logger.info("Iniciando o expansor de macros no texto: {}", text);
-        ScopeController.getInstance().createNewScope();
-        Expander expander = new Expander();
-        
-        // realiza a expansão no texto informado.
-        String output = expander.parse(text);
-        
-        // retorna o resultado
-        logger.info("O texto expandido corresponde a: {}", output);
-        return output;
-    }
+            TextRetrievalException;
 
 }
@@ -0,0 +1,49 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Representa a interação com o usuário exigida pelas primitivas de inserção
+ * de texto e de envio de mensagem. Cada contexto de expansão possui a sua
+ * interação, de modo que as expansões em lote ou em servidores possam
+ * dispensar as janelas da interface gráfica.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public interface Interaction {
+    
+    /**
+     * Solicita um texto ao usuário.
+     * @param title Título da solicitação.
+     * @param text Texto inicial.
+     * @return Par contendo a indicação de expansão posterior e o texto
+     * obtido.
+     */
+    Pair<Boolean, String> getInputText(String title, String text);
+    
+    /**
+     * Exibe uma mensagem ao usuário.
+     * @param title Título da mensagem.
+     * @param text Texto da mensagem.
+     */
+    void showMessage(String title, String text);
+    
+}
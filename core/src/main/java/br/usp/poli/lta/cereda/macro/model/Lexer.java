@@ -0,0 +1,332 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Analisador léxico compartilhado entre o compilador de textos e o
+ * reconhecimento de definições de macros. O autômato é descrito por uma tabela
+ * de transições indexada pelo estado corrente e pela classe do símbolo; os
+ * trechos literais, os argumentos e os corpos de macros são percorridos em
+ * bloco até o próximo delimitador, sem análise símbolo a símbolo.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Lexer {
+    
+    // estados do autômato; os nomes indicam o que é esperado em cada estado
+    public static final int TEXT = 0;
+    public static final int OPENING = 1;
+    public static final int NAME = 2;
+    public static final int CLOSING = 3;
+    public static final int ARGUMENTS = 4;
+    public static final int ARGUMENT_DELIMITER = 5;
+    public static final int ARGUMENT = 6;
+    public static final int ARGUMENT_CLOSING = 7;
+    public static final int SEPARATOR = 8;
+    public static final int NAME_CLOSING = 9;
+    public static final int DEFINITION = 10;
+    public static final int ASSIGNMENT = 11;
+    public static final int BODY_OPENING = 12;
+    public static final int BODY_DELIMITER = 13;
+    public static final int BODY = 14;
+    public static final int BODY_CLOSING = 15;
+    public static final int TRAILING = 16;
+    
+    // estados especiais: erro, retorno ao estado seguinte ao fechamento da
+    // macro (que depende do modo de análise) e término do reconhecimento
+    private static final int FAIL = -1;
+    private static final int RESUME = -2;
+    private static final int DONE = -3;
+    
+    // classes de símbolos
+    private static final int BACKSLASH = 0;
+    private static final int BLANK = 1;
+    private static final int OPEN = 2;
+    private static final int CLOSE = 3;
+    private static final int COMMA = 4;
+    private static final int EQUALS = 5;
+    private static final int OTHER = 6;
+    private static final int DELIMITER = 7;
+    
+    // tabela de classes dos símbolos ASCII; os demais símbolos pertencem à
+    // classe convencional
+    private static final byte[] CLASSES = new byte[128];
+    
+    // tabela de transições do autômato
+    private static final int[][] TRANSITIONS = {
+        // \          branco        (             )             ,             =             outro         delimitador
+        { OPENING,    TEXT,         TEXT,         TEXT,         TEXT,         TEXT,         TEXT,         TEXT         }, // TEXT
+        { NAME,       NAME,         FAIL,         NAME,         NAME,         NAME,         NAME,         NAME         }, // OPENING
+        { NAME,       NAME,         ARGUMENTS,    NAME,         NAME,         NAME,         NAME,         CLOSING      }, // NAME
+        { RESUME,     FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // CLOSING
+        { ARGUMENT_DELIMITER, ARGUMENTS, FAIL,    FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // ARGUMENTS
+        { ARGUMENT,   ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT     }, // ARGUMENT_DELIMITER
+        { ARGUMENT,   ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT,     ARGUMENT_CLOSING }, // ARGUMENT
+        { SEPARATOR,  FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // ARGUMENT_CLOSING
+        { FAIL,       SEPARATOR,    FAIL,         NAME_CLOSING, ARGUMENTS,    FAIL,         FAIL,         FAIL         }, // SEPARATOR
+        { FAIL,       NAME_CLOSING, FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         CLOSING      }, // NAME_CLOSING
+        { OPENING,    DEFINITION,   FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // DEFINITION
+        { FAIL,       ASSIGNMENT,   FAIL,         FAIL,         FAIL,         BODY_OPENING, FAIL,         FAIL         }, // ASSIGNMENT
+        { BODY_DELIMITER, BODY_OPENING, FAIL,     FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // BODY_OPENING
+        { BODY,       BODY,         BODY,         BODY,         BODY,         BODY,         BODY,         BODY         }, // BODY_DELIMITER
+        { BODY,       BODY,         BODY,         BODY,         BODY,         BODY,         BODY,         BODY_CLOSING }, // BODY
+        { TRAILING,   FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }, // BODY_CLOSING
+        { FAIL,       TRAILING,     FAIL,         FAIL,         FAIL,         FAIL,         FAIL,         FAIL         }  // TRAILING
+    };
+    
+    static {
+        for (int i = 0; i < CLASSES.length; i++) {
+            CLASSES[i] = OTHER;
+        }
+        CLASSES['\\'] = BACKSLASH;
+        CLASSES[' '] = BLANK;
+        CLASSES['\t'] = BLANK;
+        CLASSES['\n'] = BLANK;
+        CLASSES['\r'] = BLANK;
+        CLASSES['('] = OPEN;
+        CLASSES[')'] = CLOSE;
+        CLASSES[','] = COMMA;
+        CLASSES['='] = EQUALS;
+    }
+    
+    // texto de entrada
+    private final String input;
+    
+    // posição final (exclusiva) do trecho analisado no texto de entrada
+    private final int length;
+    
+    // estado de destino após o fechamento de uma macro
+    private final int resume;
+    
+    // estado corrente e posição do cursor
+    private int state;
+    private int cursor;
+    
+    // delimitador da macro corrente e delimitador do argumento ou do corpo
+    // corrente
+    private char delimiter;
+    private char inner;
+    
+    // posições de início e de término do conteúdo corrente
+    private int mark;
+    private int limit;
+
+    /**
+     * Construtor de um analisador de textos, composto de trechos literais e
+     * chamadas de macros.
+     * @param input Texto de entrada.
+     */
+    public Lexer(String input) {
+        this(input, false);
+    }
+
+    /**
+     * Construtor.
+     * @param input Texto de entrada.
+     * @param definition Indica se o texto de entrada é a definição de uma nova
+     * macro, no lugar de um texto convencional.
+     */
+    public Lexer(String input, boolean definition) {
+        this(input, 0, input.length(), definition);
+    }
+
+    /**
+     * Construtor de um analisador restrito a um trecho do texto de entrada.
+     * As posições dos símbolos léxicos são relativas ao texto de entrada
+     * inteiro, e não ao início do trecho.
+     * @param input Texto de entrada.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     * @param definition Indica se o trecho é a definição de uma nova macro,
+     * no lugar de um texto convencional.
+     */
+    public Lexer(String input, int start, int end, boolean definition) {
+        this.input = input;
+        this.length = end;
+        this.state = definition ? DEFINITION : TEXT;
+        this.resume = definition ? ASSIGNMENT : TEXT;
+        this.cursor = start;
+    }
+
+    /**
+     * Verifica se o símbolo é um espaço em branco que pode ser ignorado entre
+     * os elementos de uma macro.
+     * @param symbol Símbolo.
+     * @return Valor lógico indicando se o símbolo pode ser ignorado.
+     */
+    public static boolean isBlank(char symbol) {
+        return symbol < CLASSES.length && CLASSES[symbol] == BLANK;
+    }
+
+    /**
+     * Obtém o próximo símbolo léxico. Após um erro, ou ao término do texto de
+     * entrada, o símbolo de fim é retornado indefinidamente.
+     * @return Próximo símbolo léxico.
+     */
+    public Token next() {
+        
+        while (cursor < length) {
+            
+            switch (state) {
+                
+                case TEXT: {
+                    
+                    // o trecho literal segue até o próximo início de macro
+                    int begin = cursor;
+                    int index = find('\\', cursor);
+                    if (index == -1) {
+                        cursor = length;
+                        return new Token(TokenType.TEXT, begin, length);
+                    }
+                    cursor = index + 1;
+                    state = OPENING;
+                    if (index > begin) {
+                        return new Token(TokenType.TEXT, begin, index);
+                    }
+                    break;
+                }
+                
+                case NAME: {
+                    
+                    // o nome segue até o delimitador da macro ou até o início
+                    // da lista de parâmetros
+                    int index = cursor;
+                    char symbol = '\0';
+                    while (index < length) {
+                        symbol = input.charAt(index);
+                        if (symbol == delimiter || symbol == '(') {
+                            break;
+                        }
+                        index++;
+                    }
+                    if (index == length) {
+                        cursor = length;
+                        break;
+                    }
+                    Token token = new Token(TokenType.NAME, cursor, index);
+                    state = symbol == delimiter ? CLOSING : ARGUMENTS;
+                    cursor = index + 1;
+                    return token;
+                }
+                
+                case ARGUMENT:
+                case BODY: {
+                    
+                    // o conteúdo segue até o delimitador correspondente
+                    int index = find(inner, cursor);
+                    if (index == -1) {
+                        cursor = length;
+                        break;
+                    }
+                    limit = index;
+                    state = state == ARGUMENT ? ARGUMENT_CLOSING : BODY_CLOSING;
+                    cursor = index + 1;
+                    break;
+                }
+                
+                default: {
+                    
+                    char symbol = input.charAt(cursor);
+                    int next = TRANSITIONS[state][classify(symbol)];
+                    
+                    if (next == FAIL) {
+                        Token token = new Token(TokenType.ERROR, cursor,
+                                cursor, state, delimiter);
+                        state = DONE;
+                        cursor = length;
+                        return token;
+                    }
+                    
+                    int previous = state;
+                    int position = cursor;
+                    state = next == RESUME ? resume : next;
+                    cursor++;
+                    
+                    // ações associadas às transições
+                    switch (previous) {
+                        case OPENING:
+                            delimiter = symbol;
+                            break;
+                        case ARGUMENT_DELIMITER:
+                        case BODY_DELIMITER:
+                            inner = symbol;
+                            mark = cursor;
+                            break;
+                        case CLOSING:
+                            return new Token(TokenType.CLOSE, position,
+                                    cursor);
+                        case ARGUMENT_CLOSING:
+                            return new Token(TokenType.ARGUMENT, mark, limit);
+                        case BODY_CLOSING:
+                            return new Token(TokenType.BODY, mark, limit);
+                    }
+                    break;
+                }
+            }
+        }
+        
+        // o reconhecimento deve terminar em um estado de aceitação
+        if (state == TEXT || state == TRAILING || state == DONE) {
+            state = DONE;
+            return new Token(TokenType.END, length, length);
+        }
+        Token token = new Token(TokenType.INCOMPLETE, length, length, state,
+                delimiter);
+        state = DONE;
+        return token;
+    }
+    
+    /**
+     * Procura a próxima ocorrência do símbolo no trecho analisado. Quando o
+     * trecho compreende o restante do texto de entrada, a procura da própria
+     * cadeia é utilizada; caso contrário, a procura não ultrapassa o término
+     * do trecho.
+     * @param symbol Símbolo a ser procurado.
+     * @param from Posição inicial da procura.
+     * @return Posição do símbolo, ou -1 caso não seja encontrado.
+     */
+    private int find(char symbol, int from) {
+        if (length == input.length()) {
+            return input.indexOf(symbol, from);
+        }
+        for (int i = from; i < length; i++) {
+            if (input.charAt(i) == symbol) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Obtém a classe do símbolo no estado corrente. Nos estados em que um
+     * delimitador está ativo, ele tem prioridade sobre a classe convencional
+     * do símbolo.
+     * @param symbol Símbolo.
+     * @return Classe do símbolo.
+     */
+    private int classify(char symbol) {
+        if (state == NAME_CLOSING && symbol == delimiter) {
+            return DELIMITER;
+        }
+        return symbol < CLASSES.length ? CLASSES[symbol] : OTHER;
+    }
+    
+}
@@ -0,0 +1,197 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.Counters;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Representa uma biblioteca de macros, expandida uma única vez e disponível
+ * como escopo global de cada novo contexto de expansão. As macros definidas
+ * no nível mais externo da biblioteca são compartilhadas pelos contextos e os
+ * seus contadores, copiados para cada contexto; o texto produzido pela
+ * expansão da biblioteca é descartado.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Library {
+    
+    // macros definidas na biblioteca
+    private final Map<Signature, Macro> macros;
+    
+    // contadores definidos na biblioteca
+    private final Counters counters;
+    
+    // número máximo de chamadas aninhadas dos contextos criados
+    private final int limit;
+
+    /**
+     * Construtor de uma biblioteca vazia.
+     */
+    public Library() {
+        this(new HashMap<Signature, Macro>(), new Counters(),
+                ExpansionContext.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Construtor.
+     * @param macros Macros definidas na biblioteca.
+     * @param counters Contadores definidos na biblioteca.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     */
+    private Library(Map<Signature, Macro> macros, Counters counters,
+            int limit) {
+        this.macros = macros;
+        this.counters = counters;
+        this.limit = limit;
+    }
+
+    /**
+     * Expande o texto da biblioteca e obtém as macros e os contadores
+     * definidos, utilizando o limite padrão de chamadas aninhadas.
+     * @param text Texto da biblioteca.
+     * @return Biblioteca de macros.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public static Library load(String text)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        
+        return load(text, ExpansionContext.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Expande o texto da biblioteca e obtém as macros e os contadores
+     * definidos. O limite de chamadas aninhadas vale tanto para a expansão
+     * da biblioteca quanto para os contextos criados a partir dela.
+     * @param text Texto da biblioteca.
+     * @param limit Número máximo de chamadas aninhadas ao expansor.
+     * @return Biblioteca de macros.
+     * @throws PotentialInfiniteRecursionException Foi detectado uma recursão
+     * infinita (em potencial).
+     * @throws MalformedArgumentException Um argumento de uma macro paramétrica
+     * está mal formado (provavelmente erro sintático).
+     * @throws ArgumentNumberMismatchException O número de argumentos requerido
+     * para uma macro paramétrica é diferente do número de argumentos fornecido.
+     * @throws InvalidIntegerRangeException Um intervalo inteiro inválido foi
+     * fornecido como parâmetro para a primitiva de repetição.
+     * @throws MacroDefinitionException Foi detectado um problema sintático na
+     * definição de uma nova macro.
+     * @throws DuplicateMacroException Já existe uma macro com o mesmo nome no
+     * escopo corrente.
+     * @throws MacroNotFoundException A macro chamada não existe nos escopos da
+     * expansão.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático).
+     * @throws InvalidConditionValueException A primitiva de verificação de
+     * condição recebeu um valor inválido.
+     * @throws DuplicateCounterException O contador já existe no gerenciador
+     * de contadores.
+     * @throws CounterNotFoundException O contador informado não existe no
+     * gerenciador de contadores.
+     * @throws TextRetrievalException Ocorreu um erro na recuperação do texto.
+     */
+    public static Library load(String text, int limit)
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+        
+        // o escopo da biblioteca é mantido como referência, uma vez que o
+        // expansor o remove da pilha ao término da expansão
+        ExpansionContext context = new ExpansionContext(limit);
+        context.getScopes().createNewScope();
+        Map<Signature, Macro> scope = context.getScopes().getCurrentScope();
+        Expander expander = new Expander(context);
+        expander.parse(text);
+        
+        return new Library(scope, context.getCounters(), limit);
+    }
+
+    /**
+     * Obtém as macros definidas na biblioteca.
+     * @return Macros definidas na biblioteca.
+     */
+    public Collection<Macro> getMacros() {
+        return macros.values();
+    }
+
+    /**
+     * Cria um novo contexto de expansão, isolado dos demais, cujo escopo
+     * global contém as macros da biblioteca. As macros são compartilhadas
+     * entre os contextos, e não copiadas; o escopo global de um contexto é
+     * copiado apenas caso o texto expandido defina uma nova macro global.
+     * @return Novo contexto de expansão.
+     */
+    public ExpansionContext createContext() {
+        return new ExpansionContext(
+                new ScopeController(macros),
+                new Counters(counters),
+                limit
+        );
+    }
+    
+}
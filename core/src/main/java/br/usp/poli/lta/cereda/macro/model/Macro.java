@@ -19,10 +19,9 @@
 **/
 package br.usp.poli.lta.cereda.macro.model;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 /**
  * Representa uma macro.
@@ -40,6 +39,18 @@ public class Macro {
     
     // corpo da macro
     private String body;
+    
+    // corpo da macro já compilado
+    private Program program;
+    
+    // argumento de uma chamada, quando a macro representa um parâmetro
+    private Argument argument;
+    
+    // assinatura da macro, calculada sob demanda
+    private Signature signature;
+    
+    // assinaturas dos parâmetros, calculadas na primeira chamada
+    private volatile Signature[] signatures;
 
     /**
      * Obtém o nome da macro.
@@ -55,6 +66,7 @@ public class Macro {
      */
     public void setName(String name) {
         this.name = name;
+        this.signature = null;
     }
 
     /**
@@ -71,13 +83,20 @@ public class Macro {
      */
     public void setParameters(Map<Integer, String> parameters) {
         this.parameters = parameters;
+        this.signature = null;
+        this.signatures = null;
     }
 
     /**
-     * Obtém o corpo da macro.
+     * Obtém o corpo da macro. Nas macros definidas a partir do corpo já
+     * compilado, o corpo é obtido do texto original do programa, e a cópia
+     * ocorre apenas na primeira solicitação.
      * @return Corpo da macro.
      */
     public String getBody() {
+        if (body == null && program != null) {
+            return program.getSource();
+        }
         return body;
     }
 
@@ -89,6 +108,66 @@ public class Macro {
         this.body = body;
     }
 
+    /**
+     * Obtém o corpo da macro já compilado.
+     * @return Corpo compilado, ou nulo caso a macro não possua uma
+     * representação compilada.
+     */
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * Define o corpo da macro já compilado.
+     * @param program Corpo compilado.
+     */
+    public void setProgram(Program program) {
+        this.program = program;
+    }
+
+    /**
+     * Obtém o argumento da chamada representado pela macro.
+     * @return Argumento da chamada, ou nulo caso a macro não represente um
+     * parâmetro.
+     */
+    public Argument getArgument() {
+        return argument;
+    }
+
+    /**
+     * Obtém a assinatura da macro, composta pelo nome e pelo número de
+     * parâmetros.
+     * @return Assinatura da macro.
+     */
+    public Signature getSignature() {
+        Signature result = signature;
+        if (result == null) {
+            result = new Signature(name, parameters.size());
+            signature = result;
+        }
+        return result;
+    }
+
+    /**
+     * Obtém a assinatura do parâmetro informado, isto é, a assinatura da
+     * macro simples que o representa no escopo local da chamada. As
+     * assinaturas são internadas uma única vez e reutilizadas nas chamadas
+     * seguintes.
+     * @param index Índice posicional do parâmetro, a partir de 1.
+     * @return Assinatura do parâmetro.
+     */
+    public Signature getParameterSignature(int index) {
+        Signature[] result = signatures;
+        if (result == null) {
+            result = new Signature[parameters.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = new Signature(parameters.get(i + 1), 0);
+            }
+            signatures = result;
+        }
+        return result[index - 1];
+    }
+
     /**
      * Construtor vazio.
      */
@@ -106,6 +185,43 @@ public class Macro {
         this.body = body;
     }
 
+    /**
+     * Construtor de uma macro simples que representa um parâmetro; o corpo
+     * da macro é o valor do argumento correspondente da chamada.
+     * @param name Nome do parâmetro.
+     * @param argument Argumento da chamada.
+     */
+    public Macro(String name, Argument argument) {
+        this.name = name;
+        this.parameters = new HashMap<>();
+        this.argument = argument;
+    }
+
+    /**
+     * Construtor de uma macro simples com assinatura já conhecida.
+     * @param signature Assinatura da macro, sem parâmetros.
+     * @param body Corpo da macro.
+     */
+    public Macro(Signature signature, String body) {
+        this.name = signature.getName();
+        this.parameters = Collections.emptyMap();
+        this.signature = signature;
+        this.body = body;
+    }
+
+    /**
+     * Construtor de uma macro simples que representa um parâmetro, com
+     * assinatura já conhecida.
+     * @param signature Assinatura do parâmetro.
+     * @param argument Argumento da chamada.
+     */
+    public Macro(Signature signature, Argument argument) {
+        this.name = signature.getName();
+        this.parameters = Collections.emptyMap();
+        this.signature = signature;
+        this.argument = argument;
+    }
+
     /**
      * Construtor de uma macro paramétrica.
      * @param name Nome da macro.
@@ -118,6 +234,19 @@ public class Macro {
         this.body = body;
     }
 
+    /**
+     * Construtor de uma macro paramétrica a partir do corpo já compilado.
+     * @param name Nome da macro.
+     * @param parameters Mapa de parâmetros.
+     * @param program Corpo compilado.
+     */
+    public Macro(String name, Map<Integer, String> parameters,
+            Program program) {
+        this.name = name;
+        this.parameters = parameters;
+        this.program = program;
+    }
+
     /**
      * Obtém a identificação de hash do objeto corrente.
      * @return Um valor inteiro representando a identificação de hash do objeto
@@ -127,10 +256,7 @@ public class Macro {
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().
-                append(name).
-                append(parameters.size()).
-                build();
+        return getSignature().hashCode();
     }
 
     /**
@@ -153,10 +279,7 @@ public class Macro {
             return false;
         }
         final Macro reference = (Macro) object;
-        return new EqualsBuilder().
-                append(name, reference.name).
-                append(parameters.size(), reference.parameters.size()).
-                isEquals();
+        return getSignature().equals(reference.getSignature());
     }
 
     /**
@@ -169,7 +292,8 @@ public class Macro {
         sb.append("Macro: {");
         sb.append("nome = ").append(name).append(",");
         sb.append("parâmetros = ").append(parameters).append(",");
-        sb.append("corpo = ").append(body).append(" }");       
+        sb.append("corpo = ").append(argument != null ? argument : getBody()).
+                append(" }");       
         return sb.toString();
     }
 
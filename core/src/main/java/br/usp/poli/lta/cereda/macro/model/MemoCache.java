@@ -0,0 +1,770 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.util.Scope;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementa a memorização das chamadas de macros puras, isto é, das chamadas
+ * cuja expansão não altera nem consulta o estado da expansão (definições,
+ * contadores, interação com o usuário e recuperação de textos externos). A
+ * chave de cada entrada é composta pela macro chamada e pelos seus argumentos;
+ * como o escopo é dinâmico, cada entrada registra ainda as macros externas à
+ * chamada que foram consultadas durante a expansão original, e a entrada só é
+ * reutilizada se todas elas continuarem visíveis a partir do ponto da nova
+ * chamada (uma definição mais próxima que oculte qualquer uma delas invalida a
+ * entrada). O tamanho do cache é limitado pela soma dos tamanhos das entradas,
+ * descartando-se primeiro as entradas usadas há mais tempo. O texto de cada
+ * entrada é um texto composto: o texto de uma chamada memorizável aninhada é
+ * compartilhado pela chamada envolvente, e não copiado a cada nível.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class MemoCache {
+    
+    // capacidade padrão do cache, em caracteres
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    
+    // custo fixo de cada entrada e de cada dependência, em caracteres
+    private static final int ENTRY_COST = 32;
+    private static final int DEPENDENCY_COST = 8;
+    
+    // número máximo de dependências de uma entrada; a verificação de uma
+    // entrada com mais dependências custaria tanto quanto a própria expansão
+    private static final int DEPENDENCIES = 256;
+    
+    // capacidade do cache, em caracteres
+    private final int capacity;
+    
+    // tamanho máximo de uma única entrada, em caracteres
+    private final int threshold;
+    
+    // entradas do cache, na ordem de uso
+    private final LinkedHashMap<Key, Entry> entries;
+    
+    // soma dos tamanhos das entradas
+    private int weight;
+    
+    // registro da chamada memorizável mais interna em andamento
+    private Recording current;
+
+    /**
+     * Construtor de um cache com a capacidade padrão.
+     */
+    public MemoCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construtor.
+     * @param capacity Capacidade do cache, em caracteres; uma capacidade nula
+     * desabilita a memorização.
+     */
+    public MemoCache(int capacity) {
+        this.capacity = capacity;
+        this.threshold = capacity / 16;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtém a capacidade do cache.
+     * @return Capacidade do cache, em caracteres.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Obtém o número de entradas do cache.
+     * @return Número de entradas.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove todas as entradas do cache.
+     */
+    public void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Verifica se a memorização está habilitada.
+     * @return Valor lógico que indica se a memorização está habilitada.
+     */
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Verifica se há uma chamada memorizável em andamento.
+     * @return Valor lógico que indica se as consultas devem ser registradas.
+     */
+    boolean isRecording() {
+        return current != null;
+    }
+
+    /**
+     * Obtém o registro da chamada memorizável mais interna em andamento.
+     * @return Registro corrente, ou nulo caso não haja chamada em andamento.
+     */
+    Recording getRecording() {
+        return current;
+    }
+
+    /**
+     * Restaura o registro corrente, descartando os registros das chamadas
+     * interrompidas por uma exceção.
+     * @param recording Registro a ser restaurado.
+     */
+    void restore(Recording recording) {
+        current = recording;
+    }
+
+    /**
+     * Procura uma entrada válida para a chamada informada. A entrada é válida
+     * se as macros externas consultadas na expansão original continuam sendo
+     * as macros visíveis no contexto corrente e se a expansão original, a
+     * partir do número corrente de chamadas aninhadas, não excederia o limite
+     * do contexto.
+     * @param key Chave da chamada.
+     * @param context Contexto da chamada.
+     * @return Texto expandido memorizado, ou nulo caso não haja uma entrada
+     * válida.
+     */
+    Rope lookup(Key key, ExpansionContext context) {
+        
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        int calls = context.getCalls();
+        if (calls + entry.depth > context.getLimit()) {
+            return null;
+        }
+        
+        // as dependências são procuradas novamente a partir do escopo
+        // corrente; qualquer divergência invalida a entrada
+        ScopeController scopes = context.getScopes();
+        int[] indices = new int[entry.signatures.length];
+        Macro[] macros = new Macro[entry.signatures.length];
+        for (int i = 0; i < entry.signatures.length; i++) {
+            Scope scope = scopes.locate(entry.signatures[i]);
+            if (scope == null) {
+                return null;
+            }
+            Macro macro = scope.get(entry.signatures[i]);
+            if (!equivalent(entry.macros[i], macro)) {
+                return null;
+            }
+            indices[i] = scope.getIndex();
+            macros[i] = macro;
+        }
+        
+        // a chamada memorizável envolvente herda as dependências e a
+        // profundidade da entrada reutilizada
+        if (current != null) {
+            current.peak = Math.max(current.peak, calls + entry.depth);
+            for (int i = 0; i < macros.length; i++) {
+                current.resolve(entry.signatures[i], macros[i], indices[i]);
+            }
+        }
+        return entry.output;
+    }
+
+    /**
+     * Inicia o registro de uma chamada memorizável. Um registro sem chave
+     * apenas verifica a pureza da expansão e acumula o seu texto, sem
+     * memorizá-lo; é o caso da primeira iteração de uma repetição. Quando o
+     * destino é o registro corrente, o texto é encaminhado diretamente ao
+     * destino deste e incorporado ao seu texto acumulado apenas ao término da
+     * chamada, de modo que os registros aninhados não copiam o mesmo texto.
+     * @param key Chave da chamada, ou nulo.
+     * @param base Número de escopos visíveis antes da chamada; os escopos a
+     * partir desta posição são internos à chamada.
+     * @param calls Número de chamadas aninhadas no início da chamada.
+     * @param target Destino do texto expandido.
+     * @return Registro da chamada, que também atua como destino do corpo da
+     * macro.
+     */
+    Recording begin(Key key, int base, int calls, Sink target) {
+        boolean nested = current != null && target == current;
+        current = new Recording(
+                current,
+                key,
+                base,
+                calls,
+                nested ? current.target : target,
+                nested,
+                threshold
+        );
+        return current;
+    }
+
+    /**
+     * Inicia o registro da expansão adiada de um argumento, caso haja uma
+     * chamada memorizável em andamento. O argumento é expandido nos escopos
+     * visíveis na chamada que o recebeu; ao término, as macros consultadas
+     * são repassadas apenas aos registros das chamadas iniciadas até aquela,
+     * já que as chamadas iniciadas depois dependem do argumento apenas
+     * através do parâmetro correspondente, registrado como uma dependência
+     * própria.
+     * @param base Número de escopos visíveis na chamada que recebeu o
+     * argumento.
+     * @param calls Número de chamadas aninhadas na chamada que recebeu o
+     * argumento.
+     * @param target Destino do valor do argumento.
+     * @return Registro da expansão, que também atua como destino do valor do
+     * argumento, ou nulo caso não haja chamada memorizável em andamento.
+     */
+    Recording defer(int base, int calls, Sink target) {
+        if (current == null) {
+            return null;
+        }
+        current = new Recording(
+                current,
+                null,
+                base,
+                calls,
+                target,
+                false,
+                threshold
+        );
+        current.deferred = true;
+        current.buffer = null;
+        return current;
+    }
+
+    /**
+     * Conclui o registro de uma chamada memorizável, memorizando o texto
+     * expandido caso a chamada tenha sido pura.
+     * @param recording Registro da chamada.
+     */
+    void finish(Recording recording) {
+        
+        current = recording.parent;
+        if (current != null) {
+            if (recording.deferred) {
+                current.inherit(recording);
+            }
+            else {
+                current.merge(recording);
+            }
+        }
+        if (!recording.pure || recording.buffer == null ||
+                recording.key == null) {
+            return;
+        }
+        
+        // converte as dependências e calcula o tamanho da entrada
+        int size = recording.dependencies == null ?
+                0 : recording.dependencies.size();
+        Signature[] signatures = new Signature[size];
+        Macro[] macros = new Macro[size];
+        if (size > 0) {
+            int i = 0;
+            for (Map.Entry<Signature, Dependency> e :
+                    recording.dependencies.entrySet()) {
+                signatures[i] = e.getKey();
+                macros[i] = e.getValue().macro;
+                i++;
+            }
+        }
+        Entry entry = new Entry(
+                recording.buffer,
+                signatures,
+                macros,
+                recording.peak - recording.start,
+                ENTRY_COST + (int) recording.buffer.length() +
+                        recording.key.weight + size * DEPENDENCY_COST
+        );
+        if (entry.weight > threshold) {
+            return;
+        }
+        
+        // adiciona a entrada e descarta as usadas há mais tempo até que o
+        // cache volte à sua capacidade
+        Entry previous = entries.put(recording.key, entry);
+        if (previous != null) {
+            weight = weight - previous.weight;
+        }
+        weight = weight + entry.weight;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > capacity && iterator.hasNext()) {
+            weight = weight - iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Registra a consulta de uma macro na chamada memorizável corrente.
+     * @param signature Assinatura da macro.
+     * @param macro Macro encontrada.
+     * @param index Posição do escopo em que a macro foi encontrada.
+     */
+    void resolve(Signature signature, Macro macro, int index) {
+        current.resolve(signature, macro, index);
+    }
+
+    /**
+     * Registra a entrada em uma nova expansão aninhada na chamada memorizável
+     * corrente, caso exista.
+     * @param calls Número corrente de chamadas aninhadas.
+     */
+    void enter(int calls) {
+        if (current != null && calls > current.peak) {
+            current.peak = calls;
+        }
+    }
+
+    /**
+     * Indica que a chamada memorizável corrente, caso exista, alterou ou
+     * consultou o estado da expansão e, portanto, não pode ser memorizada.
+     */
+    void taint() {
+        if (current != null) {
+            current.taint();
+        }
+    }
+
+    /**
+     * Verifica se a macro visível no contexto corrente é equivalente à macro
+     * consultada na expansão original. Os parâmetros são equivalentes se
+     * ambos já foram expandidos com o mesmo valor; as demais macros, se
+     * possuem os mesmos parâmetros e o mesmo corpo.
+     * @param original Macro consultada na expansão original.
+     * @param macro Macro visível no contexto corrente.
+     * @return Valor lógico que indica se as macros são equivalentes.
+     */
+    private static boolean equivalent(Macro original, Macro macro) {
+        if (original == macro) {
+            return true;
+        }
+        if (original.getArgument() != null || macro.getArgument() != null) {
+            if (original.getArgument() == null || macro.getArgument() == null) {
+                return false;
+            }
+            String value = original.getArgument().peekValue();
+            return value != null &&
+                    value.equals(macro.getArgument().peekValue());
+        }
+        return original.getBody() != null &&
+                original.getBody().equals(macro.getBody()) &&
+                original.getParameters().equals(macro.getParameters());
+    }
+
+    /**
+     * Chave de uma chamada: a macro chamada, identificada pela instância, e
+     * os seus argumentos. Os argumentos expandidos no momento da chamada são
+     * representados pelo valor obtido; os argumentos adiados, pelo texto
+     * original, já que a sua expansão depende apenas do próprio texto e das
+     * macros consultadas, registradas como dependências da chamada.
+     */
+    static class Key {
+        
+        // macro chamada
+        private final Macro macro;
+        
+        // indica, para cada argumento, se a sua expansão foi adiada
+        private final boolean[] deferred;
+        
+        // valor ou texto original de cada argumento
+        private final String[] values;
+        
+        // identificação de hash, calculada na construção
+        private final int hash;
+        
+        // tamanho da chave, em caracteres
+        private final int weight;
+
+        /**
+         * Construtor.
+         * @param macro Macro chamada.
+         * @param parameters Parâmetros da chamada, já convertidos em macros.
+         */
+        Key(Macro macro, List<Macro> parameters) {
+            this.macro = macro;
+            this.deferred = new boolean[parameters.size()];
+            this.values = new String[parameters.size()];
+            int length = 0;
+            for (int i = 0; i < values.length; i++) {
+                Argument argument = parameters.get(i).getArgument();
+                values[i] = argument.peekValue();
+                if (values[i] == null) {
+                    deferred[i] = true;
+                    values[i] = argument.getSource();
+                }
+                length = length + values[i].length();
+            }
+            this.hash = 31 * (31 * System.identityHashCode(macro) +
+                    Arrays.hashCode(deferred)) + Arrays.hashCode(values);
+            this.weight = length;
+        }
+
+        /**
+         * Obtém a identificação de hash do objeto corrente.
+         * @return Um valor inteiro representando a identificação de hash do
+         * objeto corrente.
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Verifica se um objeto é igual ao objeto corrente.
+         * @param object Objeto a ser comparado.
+         * @return Um valor lógico indicando se o objeto fornecido representa
+         * uma chamada à mesma instância de macro, com os mesmos argumentos.
+         */
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            final Key reference = (Key) object;
+            return macro == reference.macro &&
+                    hash == reference.hash &&
+                    Arrays.equals(deferred, reference.deferred) &&
+                    Arrays.equals(values, reference.values);
+        }
+
+        /**
+         * Fornece uma representação textual da chave.
+         * @return Representação textual da chave.
+         */
+        @Override
+        public String toString() {
+            return String.format("%s %s", macro.getName(),
+                    Arrays.toString(values));
+        }
+        
+    }
+
+    /**
+     * Entrada do cache: o texto expandido, as macros externas consultadas e
+     * o número de expansões aninhadas necessárias.
+     */
+    private static class Entry {
+        
+        // texto expandido
+        private final Rope output;
+        
+        // assinaturas das macros externas consultadas
+        private final Signature[] signatures;
+        
+        // macros externas consultadas
+        private final Macro[] macros;
+        
+        // número máximo de expansões aninhadas a partir da chamada
+        private final int depth;
+        
+        // tamanho da entrada, em caracteres
+        private final int weight;
+
+        /**
+         * Construtor.
+         * @param output Texto expandido.
+         * @param signatures Assinaturas das macros externas consultadas.
+         * @param macros Macros externas consultadas.
+         * @param depth Número máximo de expansões aninhadas.
+         * @param weight Tamanho da entrada.
+         */
+        Entry(Rope output, Signature[] signatures, Macro[] macros,
+                int depth, int weight) {
+            this.output = output;
+            this.signatures = signatures;
+            this.macros = macros;
+            this.depth = depth;
+            this.weight = weight;
+        }
+        
+    }
+
+    /**
+     * Macro externa consultada durante uma chamada memorizável.
+     */
+    private static class Dependency {
+        
+        // macro encontrada
+        private final Macro macro;
+        
+        // posição do escopo em que a macro foi encontrada
+        private final int index;
+
+        /**
+         * Construtor.
+         * @param macro Macro encontrada.
+         * @param index Posição do escopo.
+         */
+        Dependency(Macro macro, int index) {
+            this.macro = macro;
+            this.index = index;
+        }
+        
+    }
+
+    /**
+     * Registro de uma chamada memorizável em andamento. O registro atua como
+     * destino do corpo da macro: o texto é repassado ao destino original e,
+     * enquanto a chamada for pura e o texto não exceder o tamanho máximo de
+     * uma entrada, acumulado para a memorização. O texto de um registro
+     * aninhado é incorporado ao texto acumulado do registro envolvente ao
+     * término da chamada aninhada.
+     */
+    static class Recording implements Sink {
+        
+        // registro da chamada memorizável envolvente
+        private final Recording parent;
+        
+        // chave da chamada
+        private final Key key;
+        
+        // número de escopos visíveis antes da chamada
+        private final int base;
+        
+        // número de chamadas aninhadas no início da chamada
+        private final int start;
+        
+        // destino original do texto expandido
+        private final Sink target;
+        
+        // indica se o texto da chamada faz parte do texto do registro
+        // envolvente
+        private final boolean nested;
+        
+        // tamanho máximo do texto acumulado
+        private final int threshold;
+        
+        // número máximo de chamadas aninhadas alcançado
+        private int peak;
+        
+        // indica se o registro é o da expansão adiada de um argumento
+        private boolean deferred;
+        
+        // indica se a chamada permanece pura
+        private boolean pure;
+        
+        // texto acumulado, nulo caso a chamada não possa ser memorizada
+        private Rope buffer;
+        
+        // macros externas consultadas, indexadas pela assinatura
+        private Map<Signature, Dependency> dependencies;
+
+        /**
+         * Construtor.
+         * @param parent Registro da chamada envolvente.
+         * @param key Chave da chamada.
+         * @param base Número de escopos visíveis antes da chamada.
+         * @param start Número de chamadas aninhadas no início da chamada.
+         * @param target Destino original do texto expandido.
+         * @param nested Indica se o texto da chamada faz parte do texto do
+         * registro envolvente.
+         * @param threshold Tamanho máximo do texto acumulado.
+         */
+        Recording(Recording parent, Key key, int base, int start,
+                Sink target, boolean nested, int threshold) {
+            this.parent = parent;
+            this.key = key;
+            this.base = base;
+            this.start = start;
+            this.peak = start;
+            this.target = target;
+            this.nested = nested;
+            this.threshold = threshold;
+            this.pure = true;
+            this.buffer = new Rope();
+        }
+
+        /**
+         * Acrescenta o texto informado ao destino original e ao texto
+         * acumulado.
+         * @param text Texto a ser acrescentado.
+         */
+        @Override
+        public void append(CharSequence text) {
+            append(text, 0, text.length());
+        }
+
+        /**
+         * Acrescenta o trecho informado do texto ao destino original e ao
+         * texto acumulado.
+         * @param text Texto de origem.
+         * @param start Posição inicial do trecho (inclusiva).
+         * @param end Posição final do trecho (exclusiva).
+         */
+        @Override
+        public void append(CharSequence text, int start, int end) {
+            target.append(text, start, end);
+            if (buffer != null) {
+                if (buffer.length() + end - start > threshold) {
+                    buffer = null;
+                }
+                else {
+                    buffer.append(text, start, end);
+                }
+            }
+        }
+
+        /**
+         * Acrescenta o texto composto informado ao destino original e, sem
+         * cópia, ao texto acumulado.
+         * @param text Texto composto a ser acrescentado.
+         */
+        @Override
+        public void append(Rope text) {
+            target.append(text);
+            accumulate(text);
+        }
+
+        /**
+         * Obtém o texto acumulado, caso a expansão registrada tenha sido
+         * pura.
+         * @return Texto acumulado, ou nulo caso a expansão não tenha sido
+         * pura ou o texto tenha excedido o tamanho máximo.
+         */
+        Rope getText() {
+            return pure ? buffer : null;
+        }
+
+        /**
+         * Acrescenta o texto composto informado ao texto acumulado, sem
+         * cópia, descartando-o caso exceda o tamanho máximo.
+         * @param text Texto composto a ser acrescentado.
+         */
+        private void accumulate(Rope text) {
+            if (buffer != null) {
+                if (buffer.length() + text.length() > threshold) {
+                    buffer = null;
+                }
+                else {
+                    buffer.append(text);
+                }
+            }
+        }
+
+        /**
+         * Registra a consulta de uma macro; apenas as macros encontradas em
+         * escopos externos à chamada são dependências da chamada. Cada
+         * assinatura guarda uma única dependência, verificada na consulta ao
+         * cache; caso a mesma assinatura seja resolvida para outra macro ou
+         * outro escopo, a chamada não pode ser memorizada. Uma chamada com
+         * mais dependências que o máximo também não é memorizada; as
+         * dependências são descartadas, de modo que as chamadas envolventes,
+         * como as de uma cadeia de chamadas aninhadas, não as copiem a cada
+         * nível.
+         * @param signature Assinatura da macro.
+         * @param macro Macro encontrada.
+         * @param index Posição do escopo em que a macro foi encontrada.
+         */
+        private void resolve(Signature signature, Macro macro, int index) {
+            if (index >= base || !pure) {
+                return;
+            }
+            if (dependencies == null) {
+                dependencies = new LinkedHashMap<>();
+            }
+            Dependency dependency = dependencies.get(signature);
+            if (dependency == null) {
+                if (dependencies.size() == DEPENDENCIES) {
+                    taint();
+                    return;
+                }
+                dependencies.put(signature, new Dependency(macro, index));
+            }
+            else if (dependency.macro != macro || dependency.index != index) {
+                taint();
+            }
+        }
+
+        /**
+         * Incorpora o registro de uma chamada aninhada já concluída.
+         * @param child Registro da chamada aninhada.
+         */
+        private void merge(Recording child) {
+            if (!child.pure) {
+                taint();
+                return;
+            }
+            peak = Math.max(peak, child.peak);
+            if (child.nested) {
+                if (child.buffer == null) {
+                    buffer = null;
+                }
+                else {
+                    accumulate(child.buffer);
+                }
+            }
+            if (child.dependencies != null) {
+                for (Map.Entry<Signature, Dependency> e :
+                        child.dependencies.entrySet()) {
+                    resolve(e.getKey(), e.getValue().macro,
+                            e.getValue().index);
+                }
+            }
+        }
+
+        /**
+         * Incorpora o registro da expansão adiada de um argumento já
+         * concluída. Os registros das chamadas iniciadas após a chamada que
+         * recebeu o argumento herdam apenas a profundidade e a impureza da
+         * expansão; as macros consultadas são incorporadas pelo registro mais
+         * interno entre os demais.
+         * @param child Registro da expansão adiada.
+         */
+        private void inherit(Recording child) {
+            Recording recording = this;
+            while (recording != null && recording.base > child.base) {
+                recording.peak = Math.max(recording.peak, child.peak);
+                if (!child.pure) {
+                    recording.taint();
+                }
+                recording = recording.parent;
+            }
+            if (recording != null) {
+                recording.merge(child);
+            }
+        }
+
+        /**
+         * Descarta o texto acumulado, já que a chamada não pode mais ser
+         * memorizada.
+         */
+        private void taint() {
+            pure = false;
+            buffer = null;
+            dependencies = null;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,234 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Representa um nó do texto compilado: um trecho literal, uma chamada de macro,
+ * uma chamada de primitiva, uma referência a um parâmetro da macro corrente ou
+ * um erro sintático a ser lançado quando a execução alcançar a sua posição.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Node {
+
+    // tipo do nó
+    private final NodeType type;
+    
+    // nome da macro, nulo para os trechos literais
+    private final String text;
+    
+    // trecho literal, mantido como um trecho do texto de origem
+    private final Slice literal;
+    
+    // classificação da macro como primitiva
+    private final Primitive primitive;
+    
+    // mapa contendo os argumentos da chamada, indexados por posição e
+    // mantidos como trechos do texto de origem
+    private final Map<Integer, Slice> parameters;
+    
+    // argumentos da chamada já compilados, obtidos sob demanda; o arranjo
+    // atômico permite que o mesmo nó seja executado por contextos distintos
+    // em paralelo
+    private final AtomicReferenceArray<Program> arguments;
+    
+    // mensagem do erro sintático adiado e indicação de que o erro ocorreu
+    // em um argumento; a exceção é criada a cada execução do nó
+    private final String error;
+    private final boolean malformedArgument;
+    
+    // assinatura da macro chamada, nula para os demais tipos de nó
+    private final Signature signature;
+
+    /**
+     * Construtor de um trecho literal.
+     * @param literal Trecho literal.
+     */
+    public Node(Slice literal) {
+        this(NodeType.TEXT, null, literal, Primitive.NONE,
+                new HashMap<Integer, Slice>(), null);
+    }
+
+    /**
+     * Construtor de uma chamada de macro, de primitiva ou de uma referência a
+     * parâmetro.
+     * @param type Tipo do nó.
+     * @param name Nome da macro.
+     * @param primitive Classificação da macro como primitiva.
+     * @param parameters Mapa de argumentos da chamada.
+     */
+    public Node(NodeType type, String name, Primitive primitive,
+            Map<Integer, Slice> parameters) {
+        this(type, name, null, primitive, parameters, null);
+    }
+
+    /**
+     * Construtor de um erro sintático adiado. Apenas a mensagem e o tipo da
+     * exceção são mantidos, de modo que cada execução do nó lance uma nova
+     * exceção.
+     * @param exception Exceção encontrada na compilação.
+     */
+    public Node(Exception exception) {
+        this(NodeType.ERROR, null, null, Primitive.NONE,
+                new HashMap<Integer, Slice>(), exception);
+    }
+
+    /**
+     * Construtor completo.
+     * @param type Tipo do nó.
+     * @param text Nome da macro.
+     * @param literal Trecho literal.
+     * @param primitive Classificação da macro como primitiva.
+     * @param parameters Mapa de argumentos da chamada.
+     * @param exception Erro sintático adiado.
+     */
+    private Node(NodeType type, String text, Slice literal,
+            Primitive primitive, Map<Integer, Slice> parameters,
+            Exception exception) {
+        this.type = type;
+        this.text = text;
+        this.literal = literal;
+        this.primitive = primitive;
+        this.parameters = parameters;
+        this.arguments = new AtomicReferenceArray<>(parameters.size());
+        this.error = exception == null ? null : exception.getMessage();
+        this.malformedArgument =
+                exception instanceof MalformedArgumentException;
+        if (type == NodeType.MACRO) {
+            this.signature = new Signature(text, parameters.size());
+        }
+        else if (type == NodeType.PARAMETER) {
+            this.signature = new Signature(text, 0);
+        }
+        else {
+            this.signature = null;
+        }
+    }
+
+    /**
+     * Obtém o tipo do nó.
+     * @return Tipo do nó.
+     */
+    public NodeType getType() {
+        return type;
+    }
+
+    /**
+     * Obtém o trecho literal ou o nome da macro, de acordo com o tipo do nó.
+     * O trecho literal é copiado do texto de origem na primeira solicitação.
+     * @return Trecho literal ou nome da macro.
+     */
+    public String getText() {
+        return literal != null ? literal.toString() : text;
+    }
+
+    /**
+     * Obtém o trecho literal, sem cópia do texto de origem.
+     * @return Trecho literal, ou nulo caso o nó não seja um trecho literal.
+     */
+    public Slice getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Obtém a classificação da macro como primitiva.
+     * @return Classificação da macro.
+     */
+    public Primitive getPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * Obtém o mapa de argumentos da chamada.
+     * @return Mapa de argumentos.
+     */
+    public Map<Integer, Slice> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Obtém o argumento informado já compilado. A compilação ocorre apenas na
+     * primeira solicitação; as chamadas seguintes reutilizam o resultado.
+     * Solicitações concorrentes podem compilar o argumento mais de uma vez,
+     * mas todas obtêm um resultado equivalente.
+     * @param index Posição do argumento, iniciando em 1.
+     * @return Argumento compilado.
+     */
+    public Program getArgument(int index) {
+        Program program = arguments.get(index - 1);
+        if (program == null) {
+            program = Compiler.compile(parameters.get(index));
+            arguments.set(index - 1, program);
+        }
+        return program;
+    }
+
+    /**
+     * Obtém a assinatura da macro chamada.
+     * @return Assinatura da macro, ou nulo caso o nó não seja uma chamada de
+     * macro ou uma referência a parâmetro.
+     */
+    public Signature getSignature() {
+        return signature;
+    }
+
+    /**
+     * Obtém a mensagem do erro sintático adiado.
+     * @return Mensagem do erro, incluindo a sua posição no texto.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Verifica se o erro sintático adiado ocorreu em um argumento.
+     * @return Valor lógico que indica se o erro deve ser lançado como um
+     * argumento mal formado, e não como uma macro mal formada.
+     */
+    public boolean isMalformedArgument() {
+        return malformedArgument;
+    }
+
+    /**
+     * Fornece uma representação textual do nó.
+     * @return Representação textual do nó.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Nó: {");
+        sb.append("tipo = ").append(type).append(",");
+        if (type == NodeType.ERROR) {
+            sb.append("erro = ").append(error).append(" }");
+        }
+        else {
+            sb.append("texto = ").append(getText()).append(",");
+            sb.append("parâmetros = ").append(parameters).append(" }");
+        }
+        return sb.toString();
+    }
+    
+}
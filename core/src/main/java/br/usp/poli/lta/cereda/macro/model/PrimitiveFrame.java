@@ -0,0 +1,401 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.MacroUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Quadro de execução de uma primitiva. Os parâmetros que a primitiva requer
+ * já expandidos são tratados primeiro, cada um em um novo escopo; em seguida,
+ * a primitiva é aplicada, e as primitivas que expandem parâmetros no destino
+ * (repetição, iteração, condição e entrada de texto) o fazem em quadros
+ * aninhados.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+class PrimitiveFrame extends Frame {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(PrimitiveFrame.class);
+    
+    // assinatura da macro que representa o elemento corrente da iteração
+    private static final Signature IT = new Signature("it", 0);
+    
+    // contexto da expansão
+    private final ExpansionContext context;
+    
+    // nó da primitiva
+    private final Node node;
+    
+    // primitiva
+    private final Primitive primitive;
+    
+    // mapa de parâmetros da primitiva
+    private final Map<Integer, Slice> parameters;
+    
+    // destino do texto expandido
+    private final Sink output;
+    
+    // parâmetros já expandidos, nulo antes da verificação inicial
+    private List<String> values;
+    
+    // número de parâmetros a serem expandidos antes da aplicação
+    private int count;
+    
+    // destino da expansão do parâmetro corrente
+    private StringSink value;
+    
+    // número de expansões restantes no destino, negativo antes da aplicação
+    private int remaining = -1;
+    
+    // posição do próximo elemento da iteração
+    private int index = 1;
+    
+    // registro da primeira repetição, utilizado para verificar se as
+    // repetições seguintes podem ser reproduzidas sem expansão
+    private MemoCache.Recording recording;
+    
+    // indica se a primeira repetição já foi registrada
+    private boolean recorded;
+
+    /**
+     * Construtor.
+     * @param context Contexto da expansão.
+     * @param node Nó da primitiva.
+     * @param output Destino do texto expandido.
+     */
+    PrimitiveFrame(ExpansionContext context, Node node, Sink output) {
+        this.context = context;
+        this.node = node;
+        this.primitive = node.getPrimitive();
+        this.parameters = node.getParameters();
+        this.output = output;
+    }
+
+    /**
+     * Executa o próximo passo da primitiva: a expansão de um parâmetro, a
+     * aplicação da primitiva ou uma das expansões no destino.
+     * @return Quadro da expansão aninhada, ou nulo caso a primitiva tenha sido
+     * concluída.
+     */
+    @Override
+    Frame step()
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+
+        // o número de parâmetros é verificado antes de qualquer expansão
+        if (values == null) {
+            
+            // as primitivas que alteram ou consultam o estado da expansão
+            // impedem a memorização da chamada corrente
+            if (!Program.isPure(primitive)) {
+                context.getMemo().taint();
+            }
+            MacroUtils.checkArguments(primitive, parameters);
+            count = MacroUtils.getValueCount(primitive);
+            values = new ArrayList<>(count);
+        }
+        
+        // os parâmetros requeridos pela primitiva são expandidos na ordem em
+        // que aparecem, cada um em um novo escopo
+        if (value != null) {
+            values.add(value.toString());
+            value = null;
+        }
+        if (values.size() < count) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Expandindo o parâmetro {} da primitiva '{}'.",
+                        values.size() + 1,
+                        primitive
+                );
+            }
+            context.getScopes().createNewScope();
+            value = new StringSink();
+            return new ProgramFrame(
+                    context,
+                    node.getArgument(values.size() + 1),
+                    value
+            );
+        }
+
+        switch (primitive) {
+            
+            case REPEAT:
+                return repeat();
+                
+            case FOREACH:
+                return iterate();
+                
+            case CHECKCONDITION:
+                return check();
+                
+            case INPUTTEXT:
+                return input();
+                
+            default:
+                MacroUtils.handlePrimitive(
+                        context,
+                        primitive,
+                        parameters,
+                        values,
+                        output
+                );
+                return null;
+        }
+        
+    }
+
+    /**
+     * Trata a primitiva de repetição, expandindo o segundo parâmetro no
+     * destino tantas vezes quanto o valor do primeiro parâmetro. Um parâmetro
+     * literal é acrescentado diretamente ao destino; a primeira expansão de
+     * um parâmetro puro é registrada e, caso não tenha alterado nem consultado
+     * o estado da expansão, o seu texto é reproduzido nas repetições
+     * seguintes, que produziriam exatamente o mesmo resultado. Em ambos os
+     * casos, o destino recebe um único texto composto que compartilha o
+     * texto repetido.
+     * @return Quadro da próxima repetição, ou nulo ao término.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     * @throws InvalidIntegerRangeException O número de repetições está em um
+     * intervalo inteiro inválido.
+     */
+    private Frame repeat() throws PotentialInfiniteRecursionException,
+            InvalidIntegerRangeException {
+        if (remaining < 0) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Tratando a primitiva 'repeat'."
+                );
+            }
+            remaining = MacroUtils.getRepetitions(values.get(0));
+        }
+        
+        // a primeira repetição acabou de ser expandida; caso tenha sido pura,
+        // o seu texto é reproduzido nas repetições restantes
+        if (recording != null) {
+            context.getMemo().finish(recording);
+            Rope text = recording.getText();
+            recording = null;
+            if (text != null) {
+                output.append(text.repeat(remaining));
+                remaining = 0;
+            }
+        }
+        if (remaining == 0) {
+            return null;
+        }
+        
+        // o parâmetro literal é acrescentado ao destino em todas as
+        // repetições restantes, sem a criação de escopos
+        Program program = node.getArgument(2);
+        if (inline(program)) {
+            Rope text = new Rope();
+            program.appendLiteral(text);
+            output.append(text.repeat(remaining));
+            remaining = 0;
+            return null;
+        }
+        
+        // cria-se um novo escopo, trata do segundo parâmetro a cada iteração,
+        // acrescentando a sua expansão diretamente ao destino
+        remaining--;
+        Sink destination = output;
+        MemoCache memo = context.getMemo();
+        if (!recorded && remaining > 0 && memo.isEnabled() &&
+                program.isPure()) {
+            recorded = true;
+            recording = memo.begin(
+                    null,
+                    context.getScopes().size(),
+                    context.getCalls(),
+                    output
+            );
+            destination = recording;
+        }
+        context.getScopes().createNewScope();
+        return new ProgramFrame(context, program, destination);
+    }
+
+    /**
+     * Trata a primitiva de iteração, expandindo cada elemento da lista e, em
+     * seguida, o padrão (último parâmetro) no destino, com o elemento
+     * disponível como a macro 'it'. Os elementos literais são obtidos
+     * diretamente, sem a criação de escopos.
+     * @return Quadro da expansão do próximo elemento ou do padrão, ou nulo ao
+     * término.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     */
+    private Frame iterate() throws PotentialInfiniteRecursionException {
+        
+        // o elemento acabou de ser expandido; uma nova macro é criada para
+        // definir o seu valor
+        if (remaining > 0) {
+            remaining = 0;
+            return bind(new Macro(IT, values.remove(0)));
+        }
+        if (index == parameters.size()) {
+            return null;
+        }
+        
+        // o elemento literal é o seu próprio valor e, por não conter
+        // chamadas, já está compilado como o corpo da macro 'it'; os demais
+        // são expandidos em um novo escopo
+        Program program = node.getArgument(index++);
+        if (inline(program)) {
+            Macro m = new Macro(IT, program.getSource());
+            m.setProgram(program);
+            return bind(m);
+        }
+        remaining = 1;
+        context.getScopes().createNewScope();
+        value = new StringSink();
+        return new ProgramFrame(context, program, value);
+    }
+
+    /**
+     * Adiciona a macro 'it' em um novo escopo e expande o padrão da iteração
+     * no destino.
+     * @param it Macro que representa o elemento corrente.
+     * @return Quadro da expansão do padrão.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     */
+    private Frame bind(Macro it) throws PotentialInfiniteRecursionException {
+        context.getScopes().createNewScope();
+        context.getScopes().addMacroToCurrentScope(it);
+        return new ProgramFrame(
+                context,
+                node.getArgument(parameters.size()),
+                output
+        );
+    }
+
+    /**
+     * Verifica se o texto compilado é literal e pode, portanto, ser
+     * acrescentado ao destino sem um quadro de expansão. A entrada na
+     * expansão aninhada é contabilizada como no quadro; caso o limite do
+     * contexto seja excedido, o quadro é utilizado, e a exceção é lançada
+     * por ele.
+     * @param program Texto compilado.
+     * @return Valor lógico que indica se o texto compilado pode ser
+     * acrescentado diretamente ao destino.
+     */
+    private boolean inline(Program program) {
+        if (!program.isLiteral() ||
+                context.getCalls() >= context.getLimit()) {
+            return false;
+        }
+        context.getMemo().enter(context.getCalls() + 1);
+        return true;
+    }
+
+    /**
+     * Trata a primitiva de verificação de condição, expandindo o segundo
+     * parâmetro no destino caso a condição seja verdadeira, ou o terceiro
+     * parâmetro, caso contrário.
+     * @return Quadro da expansão do bloco escolhido, ou nulo ao término.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     * @throws InvalidConditionValueException A condição possui um valor
+     * inválido.
+     */
+    private Frame check() throws PotentialInfiniteRecursionException,
+            InvalidConditionValueException {
+        if (remaining == 0) {
+            return null;
+        }
+        remaining = 0;
+        int choice = MacroUtils.getConditionIndex(values.get(0).trim());
+        context.getScopes().createNewScope();
+        return new ProgramFrame(context, node.getArgument(choice), output);
+    }
+
+    /**
+     * Trata a primitiva de entrada de texto, solicitando o texto através da
+     * interação do contexto (em geral, uma tela de diálogo) e acrescentando o texto informado ao destino, expandido ou não, de acordo
+     * com a escolha do usuário.
+     * @return Quadro da expansão do texto informado, ou nulo ao término.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     */
+    private Frame input() throws PotentialInfiniteRecursionException {
+        if (remaining == 0) {
+            return null;
+        }
+        remaining = 0;
+        
+        // solicita o texto ao usuário
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Solicitando o texto ao usuário."
+            );
+        }
+        Pair<Boolean, String> pair = context.getInteraction().getInputText(
+                values.get(0),
+                values.get(1)
+        );
+
+        // verifica se o texto retornado deve ser expandido
+        if (pair.getFirst()) {
+
+            // cria-se um novo escopo, trata do texto informado
+            context.getScopes().createNewScope();
+            return new ProgramFrame(
+                    context,
+                    Compiler.compile(pair.getSecond()),
+                    output
+            );
+        }
+        else {
+
+            // acrescenta o texto obtido ao destino, verbatim
+            output.append(pair.getSecond());
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Representa um texto já compilado, isto é, a sequência de nós obtida a partir
+ * de uma única análise do texto original, pronta para ser executada pelo
+ * expansor de macros sem a necessidade de uma nova análise sintática.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Program {
+
+    // número máximo de macros consultadas na verificação de um argumento
+    private static final int BUDGET = 64;
+    
+    // assinatura da macro que representa o elemento corrente da iteração
+    private static final Signature IT = new Signature("it", 0);
+
+    // texto original, mantido como um trecho do texto de origem
+    private final Slice source;
+    
+    // lista de nós do texto compilado
+    private final List<Node> nodes;
+    
+    // indica se o texto não contém primitivas que alterem ou consultem o
+    // estado da expansão, calculado sob demanda
+    private volatile Boolean pure;
+    
+    // indica se a expansão do texto pode ser memorizada, calculado sob
+    // demanda
+    private volatile Boolean memoizable;
+
+    /**
+     * Construtor.
+     * @param source Texto original.
+     */
+    public Program(Slice source) {
+        this.source = source;
+        this.nodes = new ArrayList<>();
+    }
+
+    /**
+     * Obtém o texto original. A cópia do texto de origem, quando necessária,
+     * ocorre apenas na primeira solicitação.
+     * @return Texto original.
+     */
+    public String getSource() {
+        return source.toString();
+    }
+
+    /**
+     * Obtém a lista de nós do texto compilado.
+     * @return Lista de nós.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Adiciona um nó ao final do texto compilado.
+     * @param node Nó a ser adicionado.
+     */
+    public void add(Node node) {
+        nodes.add(node);
+    }
+
+    /**
+     * Verifica se o texto compilado é composto apenas de um trecho literal
+     * (ou se é vazio), de modo que a sua expansão é o próprio texto.
+     * @return Valor lógico que indica se o texto compilado é literal.
+     */
+    public boolean isLiteral() {
+        return nodes.isEmpty() || (nodes.size() == 1 &&
+                nodes.get(0).getType() == NodeType.TEXT);
+    }
+
+    /**
+     * Acrescenta o trecho literal do texto compilado ao destino, sem
+     * expandi-lo; o texto compilado deve ser literal.
+     * @param output Destino do trecho literal.
+     */
+    void appendLiteral(Sink output) {
+        if (!nodes.isEmpty()) {
+            nodes.get(0).getLiteral().appendTo(output);
+        }
+    }
+
+    /**
+     * Verifica se a expansão do texto compilado, quando utilizado como
+     * argumento de uma chamada, pode ser adiada até a primeira referência ao
+     * parâmetro correspondente, ou evitada caso o parâmetro não seja
+     * referenciado. O texto deve ser puro, e as macros chamadas, resolvidas
+     * nos escopos informados, também devem ser puras, assim como as macros
+     * chamadas por elas. Os argumentos com efeitos observáveis, que chamam
+     * macros ainda inexistentes (visíveis, talvez, após definições globais
+     * feitas pelo corpo) ou cuja verificação consulta macros demais são
+     * expandidos de imediato.
+     * @param scopes Escopos visíveis no momento da chamada.
+     * @return Valor lógico que indica se a expansão pode ser adiada.
+     */
+    public boolean isDeferrable(ScopeController scopes) {
+        Set<Macro> visited = Collections.newSetFromMap(
+                new IdentityHashMap<Macro, Boolean>());
+        return isPure() && isClosed(scopes,
+                Collections.<Signature>emptySet(), visited,
+                new int[] { BUDGET });
+    }
+
+    /**
+     * Verifica se o texto compilado é puro, isto é, se o texto não contém
+     * erros sintáticos nem primitivas que alterem ou consultem o estado da
+     * expansão (definições, contadores, interação com o usuário e
+     * recuperação de textos externos). Os argumentos das chamadas também são
+     * verificados; os corpos das macros chamadas, por serem resolvidos apenas
+     * durante a execução, não são.
+     * @return Valor lógico que indica se o texto compilado é puro.
+     */
+    public boolean isPure() {
+        Boolean result = pure;
+        if (result == null) {
+            result = inspect();
+            pure = result;
+        }
+        return result;
+    }
+
+    /**
+     * Verifica se a expansão do texto compilado, quando utilizado como corpo
+     * de uma macro, pode ser memorizada. O texto deve ser puro e conter ao
+     * menos uma chamada de macro ou uma primitiva de controle; os corpos
+     * compostos apenas por trechos literais e referências a parâmetros são
+     * mais baratos de expandir do que de memorizar. As macros chamadas são
+     * verificadas durante a execução.
+     * @return Valor lógico que indica se a expansão pode ser memorizada.
+     */
+    public boolean isMemoizable() {
+        Boolean result = memoizable;
+        if (result == null) {
+            result = false;
+            if (isPure()) {
+                for (Node node : nodes) {
+                    if (node.getType() == NodeType.MACRO ||
+                            node.getPrimitive() == Primitive.REPEAT ||
+                            node.getPrimitive() == Primitive.FOREACH ||
+                            node.getPrimitive() == Primitive.CHECKCONDITION) {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+            memoizable = result;
+        }
+        return result;
+    }
+
+    /**
+     * Verifica se a primitiva informada é pura, isto é, se não altera nem
+     * consulta o estado da expansão.
+     * @param primitive Primitiva.
+     * @return Valor lógico que indica se a primitiva é pura.
+     */
+    static boolean isPure(Primitive primitive) {
+        switch (primitive) {
+            case COMMENT:
+            case NOEXPAND:
+            case NEWLINE:
+            case NEWPAGE:
+            case REPEAT:
+            case FOREACH:
+            case CHECKCONDITION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Percorre os nós do texto compilado, verificando se o texto é puro.
+     * @return Valor lógico que indica se o texto é puro.
+     */
+    private boolean inspect() {
+        for (Node node : nodes) {
+            switch (node.getType()) {
+                
+                case ERROR:
+                    return false;
+                    
+                case PRIMITIVE:
+                    if (!isPure(node.getPrimitive())) {
+                        return false;
+                    }
+                    
+                    // os argumentos não são expandidos
+                    if (node.getPrimitive() == Primitive.COMMENT ||
+                            node.getPrimitive() == Primitive.NOEXPAND) {
+                        continue;
+                    }
+                    break;
+                    
+            }
+            for (int i = 1; i <= node.getParameters().size(); i++) {
+                if (!node.getArgument(i).isPure()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Percorre os nós do texto compilado, já verificado como puro,
+     * resolvendo as macros chamadas e verificando os seus corpos. As
+     * referências aos parâmetros das macros percorridas (e ao elemento
+     * corrente das iterações) são resolvidas apenas durante a execução, e os
+     * seus valores provêm de argumentos também verificados.
+     * @param scopes Escopos visíveis no momento da chamada.
+     * @param parameters Assinaturas dos parâmetros visíveis no texto.
+     * @param visited Macros já verificadas.
+     * @param budget Número restante de macros a serem consultadas.
+     * @return Valor lógico que indica se as macros chamadas são puras.
+     */
+    private boolean isClosed(ScopeController scopes, Set<Signature> parameters,
+            Set<Macro> visited, int[] budget) {
+        for (Node node : nodes) {
+            if (node.getType() == NodeType.MACRO &&
+                    !parameters.contains(node.getSignature())) {
+                Macro macro = scopes.find(node.getSignature());
+                if (macro == null) {
+                    return false;
+                }
+                if (visited.add(macro)) {
+                    if (--budget[0] < 0) {
+                        return false;
+                    }
+                    
+                    // o valor de um parâmetro já expandido é expandido
+                    // novamente a cada referência; o de um parâmetro adiado
+                    // provém de um argumento já verificado
+                    Program body = macro.getProgram();
+                    Set<Signature> names = parameters;
+                    if (body == null) {
+                        if (macro.getArgument() == null) {
+                            return false;
+                        }
+                        body = macro.getArgument().peekExpansion();
+                    }
+                    else if (!macro.getParameters().isEmpty()) {
+                        names = new HashSet<>(parameters);
+                        for (int i = 1;
+                                i <= macro.getParameters().size(); i++) {
+                            names.add(macro.getParameterSignature(i));
+                        }
+                    }
+                    if (body != null && !(body.isPure() &&
+                            body.isClosed(scopes, names, visited, budget))) {
+                        return false;
+                    }
+                }
+            }
+            if (node.getPrimitive() == Primitive.COMMENT ||
+                    node.getPrimitive() == Primitive.NOEXPAND) {
+                continue;
+            }
+            int size = node.getParameters().size();
+            for (int i = 1; i <= size; i++) {
+                Set<Signature> names = parameters;
+                if (node.getPrimitive() == Primitive.FOREACH && i == size) {
+                    names = new HashSet<>(parameters);
+                    names.add(IT);
+                }
+                if (!node.getArgument(i).isClosed(scopes, names, visited,
+                        budget)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fornece uma representação textual do texto compilado.
+     * @return Representação textual do texto compilado.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Programa: {");
+        sb.append(nodes).append(" }");
+        return sb.toString();
+    }
+    
+}
@@ -0,0 +1,191 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import br.usp.poli.lta.cereda.macro.util.MacroUtils;
+import br.usp.poli.lta.cereda.macro.util.Resolution;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Quadro de execução de um texto compilado. O quadro corresponde a uma
+ * chamada ao expansor: ao ser criado, contabiliza a entrada em uma nova
+ * expansão e, ao ser concluído, libera o escopo corrente.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+class ProgramFrame extends Frame {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(ProgramFrame.class);
+    
+    // contexto da expansão
+    private final ExpansionContext context;
+    
+    // nós do texto compilado
+    private final List<Node> nodes;
+    
+    // destino do texto expandido
+    private final Sink output;
+    
+    // posição do próximo nó a ser executado
+    private int index;
+
+    /**
+     * Construtor. O escopo no qual o texto será executado já deve ter sido
+     * criado.
+     * @param context Contexto da expansão.
+     * @param program Texto compilado.
+     * @param output Destino do texto expandido.
+     * @throws PotentialInfiniteRecursionException O número de expansões
+     * aninhadas excedeu o limite do contexto.
+     */
+    ProgramFrame(ExpansionContext context, Program program, Sink output)
+            throws PotentialInfiniteRecursionException {
+        
+        // contabiliza a entrada em um novo escopo de expansão; um número de
+        // expansões aninhadas acima do limite do contexto é considerado uma
+        // situação de recursão infinita
+        MacroUtils.enterExpansion(context);
+        context.getMemo().enter(context.getCalls());
+        this.context = context;
+        this.nodes = program.getNodes();
+        this.output = output;
+    }
+
+    /**
+     * Executa os nós do texto compilado, na ordem em que aparecem no texto
+     * original, até encontrar uma chamada de macro ou primitiva.
+     * @return Quadro da chamada encontrada, ou nulo caso o texto tenha sido
+     * executado por completo.
+     */
+    @Override
+    Frame step()
+            throws PotentialInfiniteRecursionException,
+            MalformedArgumentException, ArgumentNumberMismatchException,
+            InvalidIntegerRangeException, MacroDefinitionException,
+            DuplicateMacroException, MacroNotFoundException,
+            MalformedMacroException, InvalidConditionValueException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+
+        while (index < nodes.size()) {
+            
+            Node node = nodes.get(index++);
+            switch (node.getType()) {
+                
+                case TEXT:
+                    
+                    // trechos literais são copiados integralmente para o
+                    // destino, verbatim, diretamente do texto de origem
+                    node.getLiteral().appendTo(output);
+                    break;
+                    
+                case PRIMITIVE:
+                    
+                    // a macro é uma primitiva, portanto é necessário um
+                    // tratamento especial por parte do expansor de macros
+                    return new PrimitiveFrame(context, node, output);
+                    
+                case PARAMETER:
+                    
+                    // referência a um parâmetro da macro corrente, que se
+                    // encontra no escopo corrente; o parâmetro é procurado
+                    // como uma macro simples
+                    return call(node);
+                    
+                case MACRO:
+                    
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "Estou procurando a macro '{}' nos escopos disponíveis.",
+                                node.getText()
+                        );
+                    }
+
+                    // faz a procura da macro, de acordo com o nome e o número
+                    // de parâmetros; observe que a procura ocorre do escopo no
+                    // topo da pilha até a base (a base sendo considerada o
+                    // escopo global); caso a macro não seja encontrada
+                    // (inclusive, com o número correto de parâmetros), uma
+                    // exceção é lançada e a execução é interrompida
+                    return call(node);
+                    
+                case ERROR:
+                    
+                    // erro sintático encontrado durante a compilação, lançar
+                    // uma nova exceção correspondente; o nó é compartilhado
+                    // entre as execuções e os contextos, e a exceção não
+                    if (node.isMalformedArgument()) {
+                        throw new MalformedArgumentException(node.getError());
+                    }
+                    else {
+                        throw new MalformedMacroException(node.getError());
+                    }
+                    
+            }
+            
+        }
+
+        // a expansão foi concluída com sucesso; libera-se o escopo corrente e
+        // reduz o contador do número de expansões até o momento
+        MacroUtils.exitExpansion(context);
+        context.getScopes().removeCurrentScope();
+        return null;
+        
+    }
+
+    /**
+     * Procura a macro chamada no nó e cria o quadro da chamada.
+     * @param node Nó da chamada de macro ou da referência a parâmetro.
+     * @return Quadro da chamada.
+     * @throws MacroNotFoundException A macro não existe nos escopos.
+     */
+    private Frame call(Node node) throws MacroNotFoundException {
+        Resolution resolution = MacroUtils.resolve(context, node);
+        
+        // a macro encontrada é registrada como dependência da chamada
+        // memorizável corrente, caso exista
+        if (context.getMemo().isRecording()) {
+            context.getMemo().resolve(
+                    node.getSignature(),
+                    resolution.getMacro(),
+                    resolution.getScope().getIndex()
+            );
+        }
+        return new CallFrame(context, resolution.getMacro(), node, output);
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+
+/**
+ * Representa a obtenção de documentos externos exigida pela primitiva de
+ * obtenção de texto a partir de uma URL. A implementação é fornecida por um
+ * módulo à parte, de modo que o núcleo do expansor não dependa do acesso à
+ * rede; sem uma implementação, a primitiva resulta em erro.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public interface Retrieval {
+    
+    /**
+     * Obtém o conteúdo a partir do caminho informado.
+     * @param path Caminho a ser pesquisado.
+     * @return Conteúdo do caminho informado.
+     * @throws TextRetrievalException Um erro ocorreu ao obter o documento.
+     */
+    String get(String path) throws TextRetrievalException;
+    
+}
@@ -0,0 +1,404 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representa um texto composto por uma sequência de partes, sem cópia dos
+ * símbolos: cada parte é um trecho de uma cadeia ou um outro texto composto,
+ * possivelmente repetido. Os trechos longos são referenciados e os curtos,
+ * copiados para um bloco comum; um texto composto acrescentado a outro é
+ * compartilhado e não pode mais ser modificado. O texto é copiado apenas ao
+ * ser acrescentado a um destino final ou obtido como uma única cadeia.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public final class Rope implements Sink {
+    
+    // tamanho mínimo de um trecho referenciado; os trechos menores são
+    // copiados para o bloco corrente
+    private static final int SHARED = 64;
+    
+    // tamanho máximo de um texto reduzido a uma única cadeia ao ser
+    // compartilhado, de modo que os textos curtos, como os das chamadas
+    // memorizadas, sejam acrescentados ao destino de uma só vez
+    private static final int COMPACT = 1024;
+    
+    // número máximo de partes de um texto composto copiadas, em vez de
+    // referenciadas, quando este é acrescentado uma única vez
+    private static final int INLINED = 8;
+    
+    // partes do texto
+    private final List<Part> parts;
+    
+    // bloco dos trechos curtos ainda não incluídos nas partes
+    private StringBuilder block;
+    
+    // tamanho do texto
+    private long length;
+    
+    // indica se o texto foi compartilhado e não pode mais ser modificado
+    private boolean frozen;
+
+    /**
+     * Construtor de um texto vazio.
+     */
+    public Rope() {
+        this.parts = new ArrayList<>();
+    }
+
+    /**
+     * Obtém o tamanho do texto.
+     * @return Tamanho do texto.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Verifica se o texto está vazio.
+     * @return Valor lógico que indica se o texto está vazio.
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Acrescenta o texto informado ao final do texto corrente.
+     * @param text Texto a ser acrescentado.
+     */
+    @Override
+    public void append(CharSequence text) {
+        append(text, 0, text.length());
+    }
+
+    /**
+     * Acrescenta o trecho informado do texto ao final do texto corrente. O
+     * trecho de uma cadeia é referenciado caso seja longo ou seja uma cadeia
+     * inteira que constitui o primeiro conteúdo do texto; os demais trechos
+     * são copiados.
+     * @param text Texto de origem.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     */
+    @Override
+    public void append(CharSequence text, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        check();
+        if (text instanceof String && (end - start >= SHARED ||
+                (length == 0 && start == 0 && end == text.length()))) {
+            seal();
+            parts.add(new Part((String) text, start, end));
+        }
+        else {
+            if (block == null) {
+                block = new StringBuilder();
+            }
+            block.append(text, start, end);
+        }
+        length = length + end - start;
+    }
+
+    /**
+     * Acrescenta o texto composto informado ao final do texto corrente,
+     * compartilhando as suas partes.
+     * @param text Texto composto a ser acrescentado.
+     */
+    @Override
+    public void append(Rope text) {
+        append(text, 1);
+    }
+
+    /**
+     * Acrescenta o texto composto informado ao final do texto corrente,
+     * repetido o número de vezes informado. O texto composto é compartilhado
+     * por todas as repetições e não pode mais ser modificado.
+     * @param text Texto composto a ser acrescentado.
+     * @param times Número de repetições.
+     */
+    public void append(Rope text, int times) {
+        if (times <= 0 || text.length == 0) {
+            return;
+        }
+        if (text == this) {
+            throw new IllegalArgumentException(
+                    "Um texto composto não pode ser acrescentado a si mesmo."
+            );
+        }
+        check();
+        text.freeze();
+        long size = text.length * times;
+        if (size < SHARED) {
+            Part part = text.parts.get(0);
+            for (int i = 0; i < times; i++) {
+                append(part.text, part.start, part.end);
+            }
+            return;
+        }
+        seal();
+        if (times == 1 && text.parts.size() <= INLINED) {
+            parts.addAll(text.parts);
+        }
+        else {
+            parts.add(new Part(text, times));
+        }
+        length = length + size;
+    }
+
+    /**
+     * Obtém um novo texto composto pelo texto corrente repetido o número de
+     * vezes informado, sem cópia dos símbolos.
+     * @param times Número de repetições.
+     * @return Novo texto composto.
+     */
+    public Rope repeat(int times) {
+        Rope rope = new Rope();
+        rope.append(this, times);
+        return rope;
+    }
+
+    /**
+     * Acrescenta o texto ao final do destino informado.
+     * @param output Destino do texto.
+     */
+    public void appendTo(Sink output) {
+        seal();
+        traverse(this, output, null);
+    }
+
+    /**
+     * Obtém o texto como uma única cadeia. Um texto formado por uma única
+     * cadeia inteira retorna a própria cadeia, sem cópias; nos demais casos,
+     * a cadeia é montada uma única vez, com o tamanho exato, e passa a ser a
+     * única parte do texto, caso este ainda não tenha sido compartilhado.
+     * @return Texto como uma cadeia.
+     */
+    @Override
+    public String toString() {
+        seal();
+        if (length == 0) {
+            return "";
+        }
+        if (parts.size() == 1) {
+            Part part = parts.get(0);
+            if (part.rope == null && part.start == 0 &&
+                    part.end == part.text.length()) {
+                return part.text;
+            }
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError(
+                    "O texto composto excede o tamanho máximo de uma cadeia."
+            );
+        }
+        StringBuilder builder = new StringBuilder((int) length);
+        traverse(this, null, builder);
+        String result = builder.toString();
+        if (!frozen) {
+            parts.clear();
+            parts.add(new Part(result, 0, result.length()));
+        }
+        return result;
+    }
+
+    /**
+     * Percorre as partes do texto informado, acrescentando os trechos ao
+     * destino ou à área de acumulação. O percurso não é recursivo, de modo
+     * que o aninhamento dos textos compartilhados não é limitado pela pilha;
+     * um texto repetido com uma única parte é acrescentado diretamente.
+     * @param root Texto a ser percorrido.
+     * @param output Destino dos trechos, caso a área de acumulação seja nula.
+     * @param builder Área de acumulação dos trechos, ou nulo.
+     */
+    private static void traverse(Rope root, Sink output,
+            StringBuilder builder) {
+        List<Cursor> stack = null;
+        Rope rope = root;
+        int index = 0;
+        int remaining = 1;
+        while (true) {
+            if (index == rope.parts.size()) {
+                remaining--;
+                if (remaining > 0) {
+                    index = 0;
+                }
+                else if (stack == null || stack.isEmpty()) {
+                    return;
+                }
+                else {
+                    Cursor cursor = stack.remove(stack.size() - 1);
+                    rope = cursor.rope;
+                    index = cursor.index;
+                    remaining = cursor.remaining;
+                }
+                continue;
+            }
+            Part part = rope.parts.get(index++);
+            if (part.rope == null) {
+                emit(part, output, builder);
+            }
+            else if (part.rope.parts.size() == 1 &&
+                    part.rope.parts.get(0).rope == null) {
+                Part single = part.rope.parts.get(0);
+                for (int i = 0; i < part.times; i++) {
+                    emit(single, output, builder);
+                }
+            }
+            else {
+                if (stack == null) {
+                    stack = new ArrayList<>();
+                }
+                stack.add(new Cursor(rope, index, remaining));
+                rope = part.rope;
+                index = 0;
+                remaining = part.times;
+            }
+        }
+    }
+
+    /**
+     * Acrescenta o trecho de uma parte ao destino ou à área de acumulação.
+     * @param part Parte com o trecho de uma cadeia.
+     * @param output Destino do trecho, caso a área de acumulação seja nula.
+     * @param builder Área de acumulação do trecho, ou nulo.
+     */
+    private static void emit(Part part, Sink output, StringBuilder builder) {
+        if (builder != null) {
+            builder.append(part.text, part.start, part.end);
+        }
+        else {
+            output.append(part.text, part.start, part.end);
+        }
+    }
+
+    /**
+     * Inclui o bloco dos trechos curtos nas partes do texto.
+     */
+    private void seal() {
+        if (block != null && block.length() > 0) {
+            parts.add(new Part(block.toString(), 0, block.length()));
+            block = null;
+        }
+    }
+
+    /**
+     * Impede modificações posteriores do texto, que passa a ser
+     * compartilhado. Um texto curto é reduzido a uma única parte.
+     */
+    private void freeze() {
+        if (!frozen) {
+            seal();
+            if (length < COMPACT) {
+                toString();
+            }
+            frozen = true;
+        }
+    }
+
+    /**
+     * Verifica se o texto ainda pode ser modificado.
+     */
+    private void check() {
+        if (frozen) {
+            throw new IllegalStateException(
+                    "O texto composto já foi compartilhado e não pode ser modificado."
+            );
+        }
+    }
+
+    /**
+     * Parte de um texto composto: um trecho de uma cadeia ou um texto
+     * composto repetido.
+     */
+    private static final class Part {
+        
+        // cadeia de origem e posições do trecho
+        private final String text;
+        private final int start;
+        private final int end;
+        
+        // texto composto e número de repetições
+        private final Rope rope;
+        private final int times;
+
+        /**
+         * Construtor de um trecho de uma cadeia.
+         * @param text Cadeia de origem.
+         * @param start Posição inicial do trecho (inclusiva).
+         * @param end Posição final do trecho (exclusiva).
+         */
+        Part(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.rope = null;
+            this.times = 1;
+        }
+
+        /**
+         * Construtor de um texto composto repetido.
+         * @param rope Texto composto.
+         * @param times Número de repetições.
+         */
+        Part(Rope rope, int times) {
+            this.text = null;
+            this.start = 0;
+            this.end = 0;
+            this.rope = rope;
+            this.times = times;
+        }
+        
+    }
+
+    /**
+     * Posição do percurso em um texto composto repetido, preservada durante
+     * o percurso de uma parte aninhada.
+     */
+    private static final class Cursor {
+        
+        // texto composto percorrido
+        private final Rope rope;
+        
+        // próxima parte a ser percorrida
+        private final int index;
+        
+        // número de repetições ainda não concluídas
+        private final int remaining;
+
+        /**
+         * Construtor.
+         * @param rope Texto composto percorrido.
+         * @param index Próxima parte a ser percorrida.
+         * @param remaining Número de repetições ainda não concluídas.
+         */
+        Cursor(Rope rope, int index, int remaining) {
+            this.rope = rope;
+            this.index = index;
+            this.remaining = remaining;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,144 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.util.Symbol;
+import br.usp.poli.lta.cereda.macro.util.SymbolTable;
+
+/**
+ * Representa a assinatura de uma macro, composta pelo seu nome e pelo número
+ * de parâmetros. A assinatura é utilizada como chave de indexação das macros
+ * em cada escopo. O nome é internado na tabela de símbolos, de modo que as
+ * comparações operam sobre a identidade do símbolo e o hash do nome é
+ * calculado uma única vez; o texto original é mantido apenas para mensagens.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Signature {
+    
+    // nome da macro
+    private final String name;
+    
+    // símbolo do nome na tabela de símbolos
+    private final Symbol symbol;
+    
+    // número de parâmetros
+    private final int arity;
+
+    /**
+     * Construtor.
+     * @param name Nome da macro.
+     * @param arity Número de parâmetros.
+     */
+    public Signature(String name, int arity) {
+        this(name, SymbolTable.intern(name), arity);
+    }
+
+    /**
+     * Construtor.
+     * @param name Nome da macro.
+     * @param symbol Símbolo do nome.
+     * @param arity Número de parâmetros.
+     */
+    private Signature(String name, Symbol symbol, int arity) {
+        this.name = name;
+        this.symbol = symbol;
+        this.arity = arity;
+    }
+
+    /**
+     * Obtém a assinatura para a procura de uma macro, sem registrar o nome
+     * na tabela de símbolos. Um nome que não está em uso não pertence a
+     * nenhuma macro definida, de modo que a procura pode ser encerrada sem a
+     * consulta aos escopos.
+     * @param name Nome da macro.
+     * @param arity Número de parâmetros.
+     * @return Assinatura da macro, ou nulo caso o nome não esteja em uso.
+     */
+    public static Signature probe(String name, int arity) {
+        Symbol symbol = SymbolTable.lookup(name);
+        return symbol == null ? null : new Signature(name, symbol, arity);
+    }
+
+    /**
+     * Obtém o nome da macro.
+     * @return Nome da macro.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtém o símbolo do nome na tabela de símbolos.
+     * @return Símbolo do nome da macro.
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Obtém o número de parâmetros.
+     * @return Número de parâmetros.
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * Obtém a identificação de hash do objeto corrente.
+     * @return Um valor inteiro representando a identificação de hash do objeto
+     * corrente, calculado de acordo com o hash do nome e o número de
+     * parâmetros.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * symbol.hashCode() + arity;
+    }
+
+    /**
+     * Verifica se um objeto é igual ao objeto corrente.
+     * @param object Objeto a ser comparado.
+     * @return Um valor lógico indicando se o objeto fornecido é igual ao objeto
+     * corrente, isto é, se ambas as assinaturas possuem o mesmo nome e o mesmo
+     * número de parâmetros.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (!(object instanceof Signature)) {
+            return false;
+        }
+        final Signature reference = (Signature) object;
+        return arity == reference.arity && symbol == reference.symbol;
+    }
+
+    /**
+     * Fornece uma representação textual da assinatura.
+     * @return Representação textual da assinatura.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (%d)", name, arity);
+    }
+    
+}
@@ -0,0 +1,55 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Representa o destino do texto produzido pelo expansor de macros. O texto é
+ * acrescentado ao final do destino à medida que a expansão avança, evitando a
+ * concatenação sucessiva de cadeias. Os textos compostos são copiados
+ * apenas quando acrescentados a um destino final.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public interface Sink {
+    
+    /**
+     * Acrescenta o texto informado ao final do destino.
+     * @param text Texto a ser acrescentado.
+     */
+    void append(CharSequence text);
+    
+    /**
+     * Acrescenta o trecho informado do texto ao final do destino.
+     * @param text Texto de origem.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     */
+    void append(CharSequence text, int start, int end);
+    
+    /**
+     * Acrescenta o texto composto informado ao final do destino. Os destinos
+     * intermediários compartilham as partes do texto; os destinos finais as
+     * copiam.
+     * @param text Texto composto a ser acrescentado.
+     */
+    void append(Rope text);
+    
+}
@@ -0,0 +1,169 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Representa um trecho de um texto de origem, delimitado por posições de
+ * início e de término, sem cópia dos símbolos. Os trechos literais, os
+ * argumentos e os corpos das macros são mantidos como trechos do texto
+ * analisado; a cópia ocorre apenas quando o conteúdo é solicitado como uma
+ * cadeia, e é feita uma única vez.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public final class Slice implements CharSequence {
+    
+    // texto de origem
+    private final String source;
+    
+    // posições de início (inclusiva) e de término (exclusiva) do trecho
+    private final int start;
+    private final int end;
+    
+    // conteúdo do trecho como cadeia, obtido sob demanda
+    private String text;
+
+    /**
+     * Construtor de um trecho que compreende o texto inteiro.
+     * @param source Texto de origem.
+     */
+    public Slice(String source) {
+        this(source, 0, source.length());
+    }
+
+    /**
+     * Construtor.
+     * @param source Texto de origem.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     */
+    public Slice(String source, int start, int end) {
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "O trecho [%d, %d) está fora dos limites do texto de origem.",
+                            start,
+                            end
+                    )
+            );
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Obtém o texto de origem.
+     * @return Texto de origem.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Obtém a posição inicial do trecho no texto de origem.
+     * @return Posição inicial (inclusiva).
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Obtém a posição final do trecho no texto de origem.
+     * @return Posição final (exclusiva).
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Acrescenta o trecho ao final do destino informado, sem cópia
+     * intermediária.
+     * @param output Destino do trecho.
+     */
+    public void appendTo(Sink output) {
+        output.append(source, start, end);
+    }
+
+    /**
+     * Obtém o tamanho do trecho.
+     * @return Tamanho do trecho.
+     */
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * Obtém o símbolo na posição informada, relativa ao início do trecho.
+     * @param index Posição do símbolo.
+     * @return Símbolo.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return source.charAt(start + index);
+    }
+
+    /**
+     * Obtém um trecho do trecho corrente, sobre o mesmo texto de origem.
+     * @param from Posição inicial, relativa ao início do trecho.
+     * @param to Posição final, relativa ao início do trecho.
+     * @return Novo trecho.
+     */
+    @Override
+    public Slice subSequence(int from, int to) {
+        if (from < 0 || to > end - start || from > to) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "O trecho [%d, %d) está fora dos limites.",
+                            from,
+                            to
+                    )
+            );
+        }
+        return new Slice(source, start + from, start + to);
+    }
+
+    /**
+     * Obtém o conteúdo do trecho como uma cadeia. Caso o trecho compreenda
+     * o texto de origem inteiro, o próprio texto é retornado; caso contrário,
+     * a cópia é feita na primeira solicitação e reutilizada nas seguintes.
+     * @return Conteúdo do trecho.
+     */
+    @Override
+    public String toString() {
+        String result = text;
+        if (result == null) {
+            if (start == 0 && end == source.length()) {
+                result = source;
+            }
+            else {
+                result = source.substring(start, end);
+            }
+            text = result;
+        }
+        return result;
+    }
+    
+}
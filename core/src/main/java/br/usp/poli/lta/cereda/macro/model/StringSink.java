@@ -0,0 +1,84 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Implementa um destino de texto em memória, cujo conteúdo é obtido ao final
+ * da expansão como uma única cadeia. O conteúdo é mantido como um texto
+ * composto: quando o destino recebe uma única cadeia inteira, como no repasse
+ * de um argumento sem macros através de várias chamadas, a própria cadeia é
+ * mantida e retornada, sem cópias; os trechos longos e os textos compostos
+ * recebidos são referenciados, e a cadeia final é montada uma única vez.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class StringSink implements Sink {
+    
+    // conteúdo do destino
+    private final Rope content;
+
+    /**
+     * Construtor.
+     */
+    public StringSink() {
+        this.content = new Rope();
+    }
+
+    /**
+     * Acrescenta o texto informado ao final do destino.
+     * @param text Texto a ser acrescentado.
+     */
+    @Override
+    public void append(CharSequence text) {
+        content.append(text);
+    }
+
+    /**
+     * Acrescenta o trecho informado do texto ao final do destino.
+     * @param text Texto de origem.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     */
+    @Override
+    public void append(CharSequence text, int start, int end) {
+        content.append(text, start, end);
+    }
+
+    /**
+     * Acrescenta o texto composto informado ao final do destino, sem cópia
+     * dos símbolos.
+     * @param text Texto composto a ser acrescentado.
+     */
+    @Override
+    public void append(Rope text) {
+        content.append(text);
+    }
+
+    /**
+     * Obtém o texto acumulado.
+     * @return Texto acumulado.
+     */
+    @Override
+    public String toString() {
+        return content.toString();
+    }
+    
+}
@@ -0,0 +1,128 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+/**
+ * Representa um símbolo léxico produzido pelo analisador léxico. O conteúdo
+ * do símbolo não é copiado; apenas as suas posições no texto de origem são
+ * registradas.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Token {
+    
+    // tipo do símbolo
+    private final TokenType type;
+    
+    // posição inicial do conteúdo (inclusiva)
+    private final int start;
+    
+    // posição final do conteúdo (exclusiva)
+    private final int end;
+    
+    // estado do analisador léxico no qual ocorreu o erro
+    private final int state;
+    
+    // delimitador da macro corrente no momento do erro
+    private final char delimiter;
+
+    /**
+     * Construtor.
+     * @param type Tipo do símbolo.
+     * @param start Posição inicial do conteúdo (inclusiva).
+     * @param end Posição final do conteúdo (exclusiva).
+     */
+    public Token(TokenType type, int start, int end) {
+        this(type, start, end, 0, '\0');
+    }
+
+    /**
+     * Construtor.
+     * @param type Tipo do símbolo.
+     * @param start Posição inicial do conteúdo (inclusiva).
+     * @param end Posição final do conteúdo (exclusiva).
+     * @param state Estado do analisador léxico no qual ocorreu o erro.
+     * @param delimiter Delimitador da macro corrente no momento do erro.
+     */
+    public Token(TokenType type, int start, int end, int state,
+            char delimiter) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.state = state;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Obtém o tipo do símbolo.
+     * @return Tipo do símbolo.
+     */
+    public TokenType getType() {
+        return type;
+    }
+
+    /**
+     * Obtém a posição inicial do conteúdo, ou a posição do erro.
+     * @return Posição inicial do conteúdo (inclusiva).
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Obtém a posição final do conteúdo.
+     * @return Posição final do conteúdo (exclusiva).
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Obtém o estado do analisador léxico no qual ocorreu o erro.
+     * @return Estado do analisador léxico.
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Obtém o delimitador da macro corrente no momento do erro.
+     * @return Delimitador da macro corrente.
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Fornece uma representação textual do símbolo.
+     * @return Representação textual do símbolo.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Símbolo: {");
+        sb.append("tipo = ").append(type).append(",");
+        sb.append("início = ").append(start).append(",");
+        sb.append("fim = ").append(end).append(" }");
+        return sb.toString();
+    }
+    
+}
@@ -0,0 +1,159 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.model.exceptions.SinkWriteException;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Implementa um destino de texto que encaminha o conteúdo para um escritor à
+ * medida que a expansão avança, utilizando uma área de acumulação de tamanho
+ * fixo. Como a interface de destino não lança exceções verificadas, um erro
+ * de escrita é lançado envolvido em uma {@link SinkWriteException}, que
+ * interrompe a expansão de imediato.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class WriterSink implements Sink, Flushable, Closeable {
+    
+    // tamanho padrão da área de acumulação
+    public static final int DEFAULT_CAPACITY = 8192;
+    
+    // escritor de destino
+    private final Writer writer;
+    
+    // área de acumulação e número de símbolos acumulados
+    private final char[] buffer;
+    private int size;
+
+    /**
+     * Construtor.
+     * @param writer Escritor de destino.
+     */
+    public WriterSink(Writer writer) {
+        this(writer, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construtor.
+     * @param writer Escritor de destino.
+     * @param capacity Tamanho da área de acumulação.
+     */
+    public WriterSink(Writer writer, int capacity) {
+        this.writer = writer;
+        this.buffer = new char[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Acrescenta o texto informado ao final do destino.
+     * @param text Texto a ser acrescentado.
+     */
+    @Override
+    public void append(CharSequence text) {
+        append(text, 0, text.length());
+    }
+
+    /**
+     * Acrescenta o trecho informado do texto ao final do destino. Trechos
+     * maiores que a área de acumulação são encaminhados diretamente ao
+     * escritor.
+     * @param text Texto de origem.
+     * @param start Posição inicial do trecho (inclusiva).
+     * @param end Posição final do trecho (exclusiva).
+     * @throws SinkWriteException Ocorreu um erro de escrita.
+     */
+    @Override
+    public void append(CharSequence text, int start, int end) {
+        try {
+            int length = end - start;
+            if (length > buffer.length - size) {
+                drain();
+                if (length >= buffer.length) {
+                    writer.append(text, start, end);
+                    return;
+                }
+            }
+            if (text instanceof String) {
+                ((String) text).getChars(start, end, buffer, size);
+                size += length;
+            }
+            else {
+                for (int i = start; i < end; i++) {
+                    buffer[size++] = text.charAt(i);
+                }
+            }
+        }
+        catch (IOException exception) {
+            throw new SinkWriteException(exception);
+        }
+    }
+
+    /**
+     * Acrescenta o texto composto informado ao final do destino, copiando as
+     * suas partes na ordem.
+     * @param text Texto composto a ser acrescentado.
+     * @throws SinkWriteException Ocorreu um erro de escrita.
+     */
+    @Override
+    public void append(Rope text) {
+        text.appendTo(this);
+    }
+
+    /**
+     * Encaminha o conteúdo acumulado ao escritor e o descarrega.
+     * @throws IOException Ocorreu um erro de escrita.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        writer.flush();
+    }
+
+    /**
+     * Encaminha o conteúdo acumulado ao escritor e o fecha.
+     * @throws IOException Ocorreu um erro de escrita.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        }
+        finally {
+            writer.close();
+        }
+    }
+    
+    /**
+     * Encaminha o conteúdo acumulado ao escritor.
+     * @throws IOException Ocorreu um erro de escrita.
+     */
+    private void drain() throws IOException {
+        if (size > 0) {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+    
+}
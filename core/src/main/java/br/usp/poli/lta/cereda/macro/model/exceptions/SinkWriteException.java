@@ -0,0 +1,53 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Implementa a classe de exceção para tratar de erros de escrita no destino
+ * do texto expandido. Como a interface de destino não lança exceções
+ * verificadas, o erro de escrita é envolvido nesta exceção, que interrompe a
+ * expansão imediatamente; o chamador que forneceu o escritor a desfaz e lança
+ * o erro original.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class SinkWriteException extends RuntimeException {
+
+    /**
+     * Construtor.
+     * @param cause Erro de escrita original.
+     */
+    public SinkWriteException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Obtém o erro de escrita original.
+     * @return Erro de escrita original.
+     */
+    @Override
+    public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+    }
+    
+}
@@ -23,7 +23,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Implementa um gerenciador global de contadores do expansor de macros.
+ * Implementa um gerenciador de contadores do expansor de macros. Os contadores
+ * são indexados pelo nome, em um mapa próprio de cada gerenciador; os nomes
+ * dos contadores, obtidos durante a expansão, não são registrados na tabela
+ * de símbolos compartilhada.
  * @author Paulo Roberto Massa Cereda
  * @version 1.0
  * @since 1.0
@@ -39,10 +42,18 @@ public class Counters {
     /**
      * Construtor.
      */
-    private Counters() {
+    public Counters() {
         counters = new HashMap<>();
     }
     
+    /**
+     * Construtor de cópia.
+     * @param other Gerenciador de contadores a ser copiado.
+     */
+    public Counters(Counters other) {
+        counters = new HashMap<>(other.counters);
+    }
+    
     /**
      * Obtém a instância do gerenciador de contadores.
      * @return Instância do gerenciador de contadores inteiros.
@@ -52,9 +63,16 @@ public class Counters {
     }
     
     /**
-     * Verifica se o contador existe no mapa.
+     * Remove todos os contadores do gerenciador.
+     */
+    public void clear() {
+        counters.clear();
+    }
+    
+    /**
+     * Verifica se o contador existe no gerenciador.
      * @param name Nome do contador a ser verificado.
-     * @return Valor lógico indicando se o contador existe no mapa.
+     * @return Valor lógico indicando se o contador existe.
      */
     public boolean contains(String name) {
         return counters.containsKey(name);
@@ -0,0 +1,137 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Interaction;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+import java.io.PrintStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementa a interação com o usuário sem a interface gráfica, para as
+ * expansões em lote, em servidores ou em ambientes sem tela. As mensagens são
+ * impressas no fluxo de erros, de modo a não se misturarem ao texto expandido
+ * impresso no terminal, e a inserção de texto mantém o texto inicial, tal
+ * como o cancelamento da janela de edição, avisando no mesmo fluxo que a
+ * solicitação foi ignorada.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class HeadlessInteraction implements Interaction {
+    
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(HeadlessInteraction.class);
+    
+    // fluxo de impressão das mensagens
+    private final PrintStream stream;
+
+    /**
+     * Construtor de uma interação que imprime as mensagens no fluxo de
+     * erros padrão.
+     */
+    public HeadlessInteraction() {
+        this(System.err);
+    }
+
+    /**
+     * Construtor.
+     * @param stream Fluxo de impressão das mensagens.
+     */
+    public HeadlessInteraction(PrintStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Mantém o texto inicial, sem expansão posterior, já que não há como
+     * solicitá-lo ao usuário, e avisa no fluxo de impressão.
+     * @param title Título da solicitação.
+     * @param text Texto inicial.
+     * @return Par contendo a indicação de que o texto não deve ser expandido
+     * e o texto inicial.
+     */
+    @Override
+    public Pair<Boolean, String> getInputText(String title, String text) {
+        logger.debug(
+                "A solicitação de texto '{}' foi ignorada, pois não há interface gráfica; o texto inicial foi mantido.",
+                title
+        );
+        synchronized (stream) {
+            stream.println(
+                    String.format(
+                            "A solicitação de texto '%s' foi ignorada; o texto inicial foi mantido.",
+                            title
+                    )
+            );
+        }
+        return new Pair<>(false, text);
+    }
+
+    /**
+     * Imprime a mensagem no fluxo de impressão.
+     * @param title Título da mensagem.
+     * @param text Texto da mensagem.
+     */
+    @Override
+    public void showMessage(String title, String text) {
+        synchronized (stream) {
+            stream.println(title);
+            stream.println(wrap(text, 70));
+        }
+    }
+
+    /**
+     * Quebra as linhas do texto nos espaços, de modo que cada linha não
+     * exceda a largura informada; palavras maiores que a largura são mantidas
+     * inteiras. As quebras de linha existentes são preservadas.
+     * @param text Texto a ser quebrado.
+     * @param width Largura máxima de cada linha.
+     * @return Texto com as linhas quebradas.
+     */
+    private static String wrap(String text, int width) {
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                builder.append(System.lineSeparator());
+            }
+            int length = 0;
+            for (String word : lines[i].split(" ")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                if (length > 0 && length + 1 + word.length() > width) {
+                    builder.append(System.lineSeparator());
+                    length = 0;
+                }
+                else if (length > 0) {
+                    builder.append(' ');
+                    length++;
+                }
+                builder.append(word);
+                length += word.length();
+            }
+        }
+        return builder.toString();
+    }
+    
+}
@@ -0,0 +1,1300 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Compiler;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Lexer;
+import br.usp.poli.lta.cereda.macro.model.Macro;
+import br.usp.poli.lta.cereda.macro.model.Node;
+import br.usp.poli.lta.cereda.macro.model.Primitive;
+import br.usp.poli.lta.cereda.macro.model.Retrieval;
+import br.usp.poli.lta.cereda.macro.model.Signature;
+import br.usp.poli.lta.cereda.macro.model.Sink;
+import br.usp.poli.lta.cereda.macro.model.Slice;
+import br.usp.poli.lta.cereda.macro.model.Token;
+import br.usp.poli.lta.cereda.macro.model.TokenType;
+import br.usp.poli.lta.cereda.macro.model.exceptions.ArgumentNumberMismatchException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.CounterNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateCounterException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.DuplicateMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidConditionValueException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.InvalidIntegerRangeException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroDefinitionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedArgumentException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fornece um conjunto de métodos utilitários para o expansor de macros.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class MacroUtils {
+
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger = LogManager.getLogger(MacroUtils.class);
+    
+    // tabela que associa o nome normalizado de cada primitiva suportada pelo
+    // expansor à sua classificação
+    private static final Map<String, Primitive> primitives = new HashMap<>();
+    
+    static {
+        primitives.put("comment", Primitive.COMMENT);
+        primitives.put("new line", Primitive.NEWLINE);
+        primitives.put("new page", Primitive.NEWPAGE);
+        primitives.put("no expand", Primitive.NOEXPAND);
+        primitives.put("repeat", Primitive.REPEAT);
+        primitives.put("input text", Primitive.INPUTTEXT);
+        primitives.put("send message", Primitive.SENDMESSAGE);
+        primitives.put("define", Primitive.DEFINE);
+        primitives.put("global define", Primitive.GLOBALDEFINE);
+        primitives.put("for each", Primitive.FOREACH);
+        primitives.put("increment", Primitive.INCREMENT);
+        primitives.put("decrement", Primitive.DECREMENT);
+        primitives.put("increment counter", Primitive.INCREMENTCOUNTER);
+        primitives.put("decrement counter", Primitive.DECREMENTCOUNTER);
+        primitives.put("set counter", Primitive.SETCOUNTER);
+        primitives.put("new counter", Primitive.NEWCOUNTER);
+        primitives.put("counter", Primitive.COUNTER);
+        primitives.put("check condition", Primitive.CHECKCONDITION);
+        primitives.put("is zero", Primitive.ISZERO);
+        primitives.put("is greater than", Primitive.ISGREATERTHAN);
+        primitives.put("is less than", Primitive.ISLESSTHAN);
+        primitives.put("is equal", Primitive.ISEQUAL);
+        
+        // o tratamento das primitivas de envio e de obtenção de textos do
+        // Google Drive é o mesmo da obtenção de textos a partir de um
+        // endereço
+        primitives.put("upload to google drive", Primitive.GETURL);
+        primitives.put("get from google drive", Primitive.GETURL);
+        primitives.put("get url", Primitive.GETURL);
+    }
+    
+    /**
+     * Procura a macro paramêtrica em todos os escopos, a partir do local,
+     * aumentando o nível até o global.
+     * @param context Contexto da expansão.
+     * @param name Nome da macro.
+     * @param parameters Número de parâmetros.
+     * @return A macro procurada.
+     * @throws MacroNotFoundException A macro procurada não existe nos escopos.
+     */
+    public static Macro find(ExpansionContext context, String name,
+            int parameters)
+            throws MacroNotFoundException {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Tentando encontrar a macro '{}' com {} parâmetros em todos os escopos.",
+                    name,
+                    parameters
+            );
+        }
+
+        // a procura ocorre do último escopo inserido até o primeiro escopo
+        // (por definição, o escopo 0 é global); cada escopo indexa as suas
+        // macros pela assinatura, portanto a consulta a um escopo tem custo
+        // constante, independente do número de macros nele definidas
+        Signature signature = Signature.probe(name, parameters);
+        Macro macro = signature == null ?
+                null : context.getScopes().find(signature);
+        
+        // a macro foi encontrada, esta é retornada e a busca encerra-se
+        if (macro != null) {
+            
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Encontrei a macro '{}'.",
+                        name
+                );
+            }
+            
+            return macro;
+        }
+        
+        logger.error(
+                "A macro '{}' com {} parâmetros não foi encontrada nos escopos.",
+                name,
+                parameters
+        );
+        
+        // a macro não foi encontrada, lançar exceção
+        throw new MacroNotFoundException(
+                String.format(
+                        "A macro '%s' (%d) não foi encontrada nos escopos.",
+                        name,
+                        parameters
+                )
+        );
+    }
+
+    /**
+     * Procura o parâmetro da macro corrente. Os parâmetros são definidos como
+     * macros simples no escopo corrente; caso o parâmetro não seja encontrado
+     * neste escopo, a procura segue para os demais escopos.
+     * @param context Contexto da expansão.
+     * @param name Nome do parâmetro.
+     * @return A macro que representa o parâmetro.
+     * @throws MacroNotFoundException O parâmetro não existe nos escopos.
+     */
+    public static Macro findParameter(ExpansionContext context, String name)
+            throws MacroNotFoundException {
+
+        // procura o parâmetro no escopo corrente
+        Signature signature = Signature.probe(name, 0);
+        Macro macro = signature == null ?
+                null : context.getScopes().findInCurrentScope(signature);
+        if (macro != null) {
+            return macro;
+        }
+        
+        // o parâmetro não está no escopo corrente, procurar nos demais
+        return find(context, name, 0);
+    }
+
+    /**
+     * Procura a macro chamada no nó informado em todos os escopos, a partir
+     * do local, aumentando o nível até o global; a assinatura já foi obtida
+     * na compilação do nó.
+     * @param context Contexto da expansão.
+     * @param node Nó da chamada de macro ou da referência a parâmetro.
+     * @return Resultado da procura.
+     * @throws MacroNotFoundException A macro não existe nos escopos.
+     */
+    public static Resolution resolve(ExpansionContext context, Node node)
+            throws MacroNotFoundException {
+        
+        Resolution resolution = context.getScopes().
+                resolve(node.getSignature());
+        
+        // a macro não foi encontrada; a procura completa é refeita apenas
+        // para relatar o erro
+        if (resolution == null) {
+            find(context, node.getText(), node.getSignature().getArity());
+        }
+        
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Encontrei a macro '{}' no escopo {}.",
+                    node.getText(),
+                    resolution.getScope().getIndex()
+            );
+        }
+        return resolution;
+    }
+
+    /**
+     * Procura a macro simples em todos os escopos, a partir do local,
+     * aumentando o nível até o global.
+     * @param context Contexto da expansão.
+     * @param name Nome da macro.
+     * @return A macro procurada.
+     * @throws MacroNotFoundException A macro não existe nos escopos.
+     */
+    public static Macro find(ExpansionContext context, String name)
+            throws MacroNotFoundException {
+        return find(context, name, 0);
+    }
+
+    /**
+     * Incrementa o contador de chamadas ao expansor e verifica se este está
+     * em uma situação de uma recursão infinita em potencial (por padrão,
+     * definida em mais de 500 chamadas).
+     * @param context Contexto da expansão.
+     * @throws PotentialInfiniteRecursionException O expansor foi chamado mais
+     * vezes do que o limite do contexto sem retornar.
+     */
+    public static void enterExpansion(ExpansionContext context)
+            throws PotentialInfiniteRecursionException {
+        
+        int calls = context.getCalls() + 1;
+        context.setCalls(calls);
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Entrando na expansão ({}).",
+                    calls
+            );
+        }
+        
+        // o limite máximo de chamadas sem retornar foi alcançado
+        if (calls > context.getLimit()) {
+            String message = String.format(
+                    "A execução atingiu %d chamadas internas, o que indica uma recursão infinita em potencial.",
+                    context.getLimit()
+            );
+            logger.error(message);
+            throw new PotentialInfiniteRecursionException(message);
+        }
+    }
+
+    /**
+     * Decrementa o contador de chamadas ao expansor.
+     * @param context Contexto da expansão.
+     */
+    public static void exitExpansion(ExpansionContext context) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Saindo da expansão."
+            );
+        }
+        context.setCalls(context.getCalls() - 1);
+    }
+
+    /**
+     * Verifica se a macro (simples ou paramétrica) é uma primitiva.
+     * @param name Nome da macro.
+     * @param parameters Mapa de parâmetros.
+     * @return Enumeração com a classificação da macro fornecida.
+     */
+    public static Primitive checkPrimitive(String name,
+            Map<Integer, Slice> parameters) {
+        
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Verificando se a macro '{}' com parâmetros '{}' é uma primitiva.",
+                    name,
+                    parameters
+            );
+        }
+
+        // a classificação é obtida diretamente da tabela de primitivas, a
+        // partir do nome normalizado da macro
+        Primitive result = primitives.get(normalize(name));
+        
+        // a macro é uma primitiva, classificar
+        if (result != null) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "A primitiva {} foi encontrada.",
+                        result
+                );
+            }
+            return result;
+        }
+        else {
+            
+            // a macro fornecida não é uma primitiva
+            return Primitive.NONE;
+        }
+
+    }
+    
+    /**
+     * Normaliza o nome da macro, substituindo sequências de espaços em branco
+     * por um único espaço e removendo os espaços nas extremidades. Nomes que
+     * já estão normalizados, como os provenientes da limpeza realizada na
+     * análise sintática, são retornados sem cópia.
+     * @param name Nome da macro.
+     * @return Nome normalizado.
+     */
+    private static String normalize(String name) {
+        int length = name.length();
+        boolean previous = true;
+        for (int i = 0; i < length; i++) {
+            char symbol = name.charAt(i);
+            if (isWhitespace(symbol)) {
+                if (previous || symbol != ' ') {
+                    return collapse(name);
+                }
+                previous = true;
+            }
+            else {
+                previous = false;
+            }
+        }
+        if (previous && length > 0) {
+            return collapse(name);
+        }
+        return name;
+    }
+    
+    /**
+     * Substitui sequências de espaços em branco por um único espaço e remove
+     * os espaços nas extremidades do nome.
+     * @param name Nome da macro.
+     * @return Nome normalizado.
+     */
+    private static String collapse(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean pending = false;
+        for (int i = 0; i < name.length(); i++) {
+            char symbol = name.charAt(i);
+            if (isWhitespace(symbol)) {
+                pending = sb.length() > 0;
+            }
+            else {
+                if (pending) {
+                    sb.append(' ');
+                    pending = false;
+                }
+                sb.append(symbol);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Verifica se o símbolo é um espaço em branco, de acordo com a classe
+     * de espaços das expressões regulares.
+     * @param symbol Símbolo a ser verificado.
+     * @return Valor lógico indicando se o símbolo é um espaço em branco.
+     */
+    private static boolean isWhitespace(char symbol) {
+        return symbol == ' ' || symbol == '\t' || symbol == '\n' ||
+                symbol == '\u000B' || symbol == '\f' || symbol == '\r';
+    }
+
+    /**
+     * Verifica se o número de parâmetros fornecido à primitiva coincide com
+     * a sua definição. A verificação ocorre antes da expansão de qualquer
+     * parâmetro.
+     * @param primitive Primitiva.
+     * @param parameters Mapa de parâmetros.
+     * @throws ArgumentNumberMismatchException O número de argumentos da
+     * primitiva não coincide com sua definição.
+     */
+    public static void checkArguments(Primitive primitive,
+            Map<Integer, Slice> parameters)
+            throws ArgumentNumberMismatchException {
+
+        switch (primitive) {
+
+            case DEFINE:
+            case GLOBALDEFINE:
+
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Encontrei uma primitiva de definição de novas macros."
+                    );
+                }
+
+                // o número de parâmetros é inválido
+                if (parameters.size() != 1) {
+                    
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "A definição de novas macros requer um parâmetro."
+                        );
+                    }
+                    throw new ArgumentNumberMismatchException(
+                            "A definição de novas macros requer um parâmetro."
+                    );
+                }
+                break;
+
+            case NEWLINE:
+
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Encontrei uma primitiva de definição de nova linha."
+                    );
+                }
+
+                // o número de parâmetros é inválido, tem que ser vazio
+                if (!parameters.isEmpty()) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "A definição de nova linha não tem parâmetro."
+                        );
+                    }
+                    throw new ArgumentNumberMismatchException(
+                            "A definição de nova linha não tem parâmetro."
+                    );
+                }
+                break;
+
+            case NEWPAGE:
+
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Encontrei uma primitiva de definição de nova página."
+                    );
+                }
+
+                // o número de parâmetros é inválido, tem que ser vazio
+                if (!parameters.isEmpty()) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "A definição de nova página não tem parâmetro."
+                        );
+                    }
+                    throw new ArgumentNumberMismatchException(
+                            "A definição de nova página não tem parâmetro."
+                    );
+                }
+                break;
+
+            case NOEXPAND:
+
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Encontrei uma primitiva de bloco literal."
+                    );
+                }
+
+                // o número de parâmetros é inválido
+                if (parameters.size() != 1) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "A primitiva de bloco literal requer um parâmetro."
+                        );
+                    }
+                    throw new ArgumentNumberMismatchException(
+                            "A primitiva de bloco literal requer um parâmetro."
+                    );
+                }
+                break;
+
+            case INPUTTEXT:
+            case SENDMESSAGE:
+            case REPEAT:
+
+                // o número de parâmetros é inválido
+                if (parameters.size() != 2) {
+                    logger.error(
+                            "O número de parâmetros da primitiva '{}' não confere (a primitiva requer dois parâmetros). Foi encontrado: {}",
+                            primitive,
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format("O número de parâmetros da primitiva '%s' não confere. (a primitiva requer dois parâmetros). Foi encontrado: %s",
+                                    primitive, parameters
+                            )
+                    );
+                }
+                break;
+                
+            case FOREACH:
+                
+                // o número de parâmetros é inválido
+                if (parameters.size() < 2) {
+                    logger.error("O número de parâmetros da primitiva 'foreach' não confere (a primitiva requer no mínimo dois parâmetros). Foi encontrado: {}", parameters);
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'foreach' não confere. (a primitiva requer no mínimo dois parâmetros). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case CHECKCONDITION:
+                
+                // o número de parâmetros é inválido
+                if (parameters.size() != 3) {
+                    logger.error(
+                            "O número de parâmetros da primitiva 'check condition' não confere (a primitiva requer três parâmetros). Foi encontrado: {}",
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'check condition' não confere. (a primitiva requer três parâmetros). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case NEWCOUNTER:
+                
+                // o número de parâmetros é inválido
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva 'new counter' não confere (a primitiva requer um parâmetro). Foi encontrado: {}",
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'new counter' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case SETCOUNTER:
+                
+                // o número de parâmetros é inválido
+                if (parameters.size() != 2) {
+                    logger.error(
+                            "O número de parâmetros da primitiva 'set counter' não confere (a primitiva requer dois parâmetros). Foi encontrado: {}",
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'set counter' não confere. (a primitiva requer dois parâmetros). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case COUNTER:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva counter não confere (a primitiva requer um parâmetro). Foi encontrado: {}",
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'counter' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case INCREMENT:
+            case DECREMENT:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva '{}' não confere (a primitiva requer um parâmetro). Foi encontrado: {}",
+                            primitive,
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva '%s' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    primitive,
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case INCREMENTCOUNTER:
+            case DECREMENTCOUNTER:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva '{}' não confere (a primitiva requer um parâmetro). Foi encontrado: {}",
+                            primitive,
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva '%s' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    primitive,
+                                    parameters
+                            ));
+                }
+                break;
+                
+            case ISGREATERTHAN:
+            case ISLESSTHAN:
+            case ISEQUAL:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 2) {
+                    logger.error("O número de parâmetros da primitiva '{}' não confere (a primitiva requer dois parâmetros). Foi encontrado: {}",
+                            primitive,
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva '%s' não confere. (a primitiva requer dois parâmetros). Foi encontrado: %s",
+                                    primitive,
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case ISZERO:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva 'is zero' não confere (a primitiva requer um parâmetro). Foi encontrado: {}", parameters);
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva 'is zero' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    parameters
+                            )
+                    );
+                }
+                break;
+                
+            case GETURL:
+                
+                // número inválido de parâmetros
+                if (parameters.size() != 1) {
+                    logger.error(
+                            "O número de parâmetros da primitiva '{}' não confere (a primitiva requer um parâmetro). Foi encontrado: {}",
+                            primitive,
+                            parameters
+                    );
+                    throw new ArgumentNumberMismatchException(
+                            String.format(
+                                    "O número de parâmetros da primitiva '%s' não confere. (a primitiva requer um parâmetro). Foi encontrado: %s",
+                                    primitive,
+                                    parameters
+                            )
+                    );
+                }
+                break;
+
+        }
+
+    }
+
+    /**
+     * Obtém o número de parâmetros da primitiva que devem ser expandidos, cada
+     * um em um novo escopo e na ordem em que aparecem, antes que a primitiva
+     * seja tratada.
+     * @param primitive Primitiva.
+     * @return Número de parâmetros a serem expandidos previamente.
+     */
+    public static int getValueCount(Primitive primitive) {
+        switch (primitive) {
+            case INPUTTEXT:
+            case SENDMESSAGE:
+            case SETCOUNTER:
+            case ISGREATERTHAN:
+            case ISLESSTHAN:
+            case ISEQUAL:
+                return 2;
+            case REPEAT:
+            case CHECKCONDITION:
+            case NEWCOUNTER:
+            case COUNTER:
+            case INCREMENT:
+            case DECREMENT:
+            case INCREMENTCOUNTER:
+            case DECREMENTCOUNTER:
+            case ISZERO:
+            case GETURL:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Trata a primitiva de acordo com seus parâmetros, acrescentando o
+     * resultado ao destino informado. Os parâmetros indicados em
+     * {@link #getValueCount(Primitive)} já foram expandidos; as primitivas
+     * que expandem parâmetros no destino (repetição, iteração, condição e
+     * entrada de texto) são tratadas pelo próprio expansor.
+     * @param context Contexto da expansão.
+     * @param primitive Primitiva.
+     * @param parameters Mapa de parâmetros.
+     * @param values Parâmetros já expandidos.
+     * @param output Destino do texto produzido pela primitiva.
+     * @throws MalformedArgumentException Um argumento da macro está mal formado
+     * (provavelmente um erro sintático).
+     * @throws MacroDefinitionException Erro sintático na definição de uma nova
+     * macro.
+     * @throws DuplicateMacroException A macro já existe no escopo corrente.
+     * @throws MalformedMacroException A macro está mal formada (provavelmente
+     * um erro sintático)
+     * @throws DuplicateCounterException O contador já existe no gerenciador.
+     * @throws CounterNotFoundException O contador não existe no gerenciador.
+     * @throws TextRetrievalException Ocorreu um erro na tentativa de
+     * recuperação do texto.
+     */
+    public static void handlePrimitive(ExpansionContext context,
+            Primitive primitive, Map<Integer, Slice> parameters,
+            List<String> values, Sink output)
+            throws MalformedArgumentException, MacroDefinitionException,
+            DuplicateMacroException, MalformedMacroException,
+            DuplicateCounterException, CounterNotFoundException,
+            TextRetrievalException {
+
+        // realiza o tratamento da primitiva de acordo com sua classificação
+        switch (primitive) {
+
+            case DEFINE:
+            case GLOBALDEFINE:
+
+                // define-se uma nova macro a partir do parâmetro da primitiva
+                Macro macro = defineNewMacro(parameters.get(1));
+                
+                // se a primitiva é local, tenta-se adicionar a nova macro no
+                // escopo local, ou lançar uma exceção caso uma macro com as
+                // mesmas características já exista no escopo
+                if (primitive == Primitive.DEFINE) {
+                    
+                    if (!context.getScopes().addMacroToCurrentScope(macro)) {
+                        logger.error(
+                                "Não foi possível adicionar a macro '{}' no escopo corrente. Ela já está definida.",
+                                macro
+                        );
+                        throw new DuplicateMacroException(
+                                String.format(
+                                        "Não foi possível adicionar a macro '%s' no escopo corrente. Ela já está definida.",
+                                        macro
+                                )
+                        );
+                    }
+                    
+                }
+                else {
+                    
+                    // a primitiva prevê a inserção da macro no escopo global,
+                    // ou lança-se um erro caso uma macro com as mesmas 
+                    // características já exista no escopo
+                    if (!context.getScopes().addMacroToGlobalScope(macro)) {
+                        logger.error(
+                                "Não foi possível adicionar a macro '{}' no escopo global. Ela já está definida.",
+                                macro
+                        );
+                        throw new DuplicateMacroException(
+                                String.format(
+                                        "Não foi possível adicionar a macro '%s' no escopo global. Ela já está definida.",
+                                        macro
+                                )
+                        );
+                    }
+                }
+
+                break;
+
+            case NEWLINE:
+
+                // acrescenta a nova linha ao destino
+                output.append("\n");
+                break;
+
+            case NEWPAGE:
+
+                // acrescenta a nova página ao destino
+                output.append("<NEW PAGE BODY>");
+                break;
+
+            case NOEXPAND:
+
+                // acrescenta o bloco literal ao destino, diretamente do
+                // texto de origem
+                parameters.get(1).appendTo(output);
+                break;
+
+            case SENDMESSAGE:
+
+                // exibe a mensagem
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            "Exibindo a mensagem ao usuário."
+                    );
+                }
+                context.getInteraction().showMessage(
+                        values.get(0),
+                        values.get(1)
+                );
+                break;
+                
+            case NEWCOUNTER:
+                
+                // se o contador já existe, é um erro de definição
+                String name = values.get(0);
+                if (context.getCounters().contains(name)) {
+                    throw new DuplicateCounterException(
+                            String.format(
+                                    "O contador '%s' já está definido.",
+                                    name
+                            )
+                    );
+                }
+                else {
+
+                    // cria um novo contador no gerenciador global de
+                    // contadores e define seu valor inicial como zero
+                    context.getCounters().set(name, 0);
+                }
+                
+                break;
+                
+            case SETCOUNTER:
+                
+                // converte o valor obtido para uma representação inteira
+                name = values.get(0);
+                int value;
+                try {
+                    value = Integer.parseInt(values.get(1).trim());
+                }
+                catch (NumberFormatException exception) {
+                    throw new NumberFormatException(
+                            "Não foi possível converter o valor do contador para uma representação inteira."
+                    );
+                }
+
+                // tenta atribuir o novo valor ao contador
+                if (context.getCounters().contains(name)) {
+                    context.getCounters().set(name, value);
+                }
+                else {
+                    throw new CounterNotFoundException(
+                            String.format(
+                                    "Não foi possível definir o valor do contador '%s' porque este não foi definido.", name
+                            )
+                    );
+                }
+            
+                break;
+                
+            case COUNTER:
+                
+                // obtém o valor do contador, converte-o para o formato
+                // textual e o acrescenta ao destino
+                name = values.get(0);
+                if (context.getCounters().contains(name)) {
+                    output.append(String.valueOf(
+                            context.getCounters().get(name)));
+                }
+                else {
+                    throw new CounterNotFoundException(
+                            String.format(
+                                    "Não foi possível obter o valor do contador '%s' porque este não foi definido.",
+                                    name
+                            )
+                    );
+                }
+            
+                break;
+                
+            case INCREMENT:
+            case DECREMENT:
+                
+                // obtém a representação inteira do parâmetro
+                value = getInteger(values.get(0));
+
+                // realiza a operação de acordo com o tipo de primitiva
+                // (incremento ou decremento do valor)
+                if (primitive == Primitive.INCREMENT) {
+                    value++;
+                }
+                else {
+                    value--;
+                }
+
+                // acrescenta uma representação textual do valor obtido
+                output.append(String.valueOf(value));
+            
+                break;
+                
+            case INCREMENTCOUNTER:
+            case DECREMENTCOUNTER:
+                
+                // verifica se o contador existe no gerenciador global de
+                // contadores
+                name = values.get(0);
+                if (context.getCounters().contains(name)) {
+
+                    // obtém o valor a partir do nome do contador
+                    value = context.getCounters().get(name);
+
+                    // realiza a operação de acordo com o tipo de primitiva
+                    // (incremento ou decremento do valor do contador)
+                    if (primitive == Primitive.INCREMENTCOUNTER) {
+                        value++;
+                    }
+                    else {
+                        value--;
+                    }
+
+                    // atualiza o contador com o novo valor
+                    context.getCounters().set(name, value);
+
+                }
+                else {
+                    throw new CounterNotFoundException(
+                            String.format(
+                                    "Não foi possível definir o valor do contador '%s' porque este não foi definido.",
+                                    name
+                            )
+                    );
+                }
+            
+                break;
+                
+            case ISGREATERTHAN:
+            case ISLESSTHAN:
+            case ISEQUAL:
+                
+                // obtém a representação inteira dos dois parâmetros
+                int value1 = getInteger(values.get(0));
+                int value2 = getInteger(values.get(1));
+
+                // verifica qual operação realizar e realiza o teste
+                // necessário
+                if (primitive == Primitive.ISGREATERTHAN) {
+                    output.append(value1 > value2 ? "true" : "false");
+                }
+                else {
+                    if (primitive == Primitive.ISLESSTHAN) {
+                        output.append(value1 < value2 ? "true" : "false");
+                    }
+                    else {
+                        output.append(value1 == value2 ? "true" : "false");
+                    }
+                }
+            
+                break;
+                
+            case ISZERO:
+                
+                // acrescenta o resultado da comparação com zero
+                value = getInteger(values.get(0));
+                output.append(value == 0 ? "true" : "false");
+            
+                break;
+                
+            case GETURL:
+                
+                // a obtenção de documentos é fornecida pelo módulo de rede;
+                // sem ele, o contexto não possui acesso a documentos externos
+                Retrieval retrieval = context.getRetrieval();
+                if (retrieval == null) {
+                    throw new TextRetrievalException(
+                            "A obtenção de documentos a partir de URLs não está disponível."
+                    );
+                }
+                output.append(retrieval.get(values.get(0)));
+                break;
+
+        }
+
+    }
+
+    /**
+     * Obtém a representação inteira do valor de um parâmetro.
+     * @param value Valor textual do parâmetro.
+     * @return Representação inteira do parâmetro.
+     */
+    private static int getInteger(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException exception) {
+            throw new NumberFormatException(
+                    "Não foi possível converter o valor do parâmetro para uma representação inteira."
+            );
+        }
+    }
+
+    /**
+     * Obtém o número de repetições da primitiva de repetição a partir do valor
+     * já expandido do seu primeiro parâmetro.
+     * @param value Valor textual do parâmetro.
+     * @return Número de repetições.
+     * @throws InvalidIntegerRangeException O valor está em um intervalo
+     * inteiro inválido.
+     */
+    public static int getRepetitions(String value)
+            throws InvalidIntegerRangeException {
+
+        // a primitiva de repetição requer um valor inteiro
+        int times = 0;
+
+        // converte o valor textual para um valor inteiro
+        try {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "Tentando converter o primeiro parâmetro para um valor inteiro."
+                );
+            }
+            times = Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException exception) {
+            logger.error(
+                    "Não foi possível converter o parâmetro da primitiva 'repeat', esperando um valor inteiro."
+            );
+            throw new NumberFormatException(
+                    "Não foi possível converter o parâmetro da primitiva 'repeat', esperando um valor inteiro."
+            );
+        }
+
+        // verifica o intervalo do valor inteiro
+        if (times <= 0) {
+            logger.error(
+                    "O primeiro parâmetro possui um intervalo inválido."
+            );
+            throw new InvalidIntegerRangeException(
+                    "O primeiro parâmetro possui um intervalo inválido."
+            );
+        }
+        
+        return times;
+    }
+
+    /**
+     * Define uma nova macro a partir do texto de entrada. O corpo da macro é
+     * compilado como um trecho do texto de entrada, sem cópia.
+     * @param input Texto de entrada.
+     * @return Uma nova macro.
+     * @throws MacroDefinitionException Ocorreu um erro na definição da nova
+     * macro.
+     * @throws MalformedMacroException A nova macro está mal formada
+     * (provavelmente um erro sintático)
+     * @throws MalformedArgumentException Um dos argumentos está mal formado
+     * (provavelmente um erro sintático)
+     */
+    private static Macro defineNewMacro(Slice input)
+            throws MacroDefinitionException, MalformedMacroException,
+            MalformedArgumentException {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "Obtendo definição da nova macro: {}",
+                    input
+            );
+        }
+        
+        // analisador léxico no modo de definição de macros, restrito ao
+        // trecho de entrada
+        String source = input.getSource();
+        int offset = input.getStart();
+        Lexer lexer = new Lexer(source, offset, input.getEnd(), true);
+
+        // variáveis auxiliares para compôr a nova macro
+        String name = "";
+        Slice body = new Slice("");
+        Map<Integer, String> parameters = new HashMap<>();
+        int total = 0;
+
+        // consome os símbolos léxicos até o término da definição
+        Token token = lexer.next();
+        while (token.getType() != TokenType.END) {
+            
+            switch (token.getType()) {
+                
+                case NAME:
+                    name = source.substring(token.getStart(), token.getEnd());
+                    break;
+                    
+                case ARGUMENT:
+                    
+                    // o parâmetro é adicionado no mapa de parâmetros, indexado
+                    // por sua posição na definição
+                    total++;
+                    parameters.put(total, source.substring(
+                            token.getStart(), token.getEnd()));
+                    break;
+                    
+                case BODY:
+                    body = new Slice(source, token.getStart(), token.getEnd());
+                    break;
+                    
+                case ERROR:
+                    failDefinition(token, offset);
+                    break;
+                    
+                case INCOMPLETE:
+                    
+                    // o autômato não se encerrou em um estado de aceitação
+                    throw new MacroDefinitionException(
+                            "Houve um erro na definição da nova macro, o reconhecimento encerrou-se prematuramente."
+                    );
+                    
+            }
+            
+            token = lexer.next();
+        }
+        
+        // faz a limpeza no nome da macro
+        name = sanitize(name);
+
+        // define a nova macro, compila o seu corpo e a retorna
+        Macro macro = new Macro(name, parameters,
+                Compiler.compile(body, parameters.values()));
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "A nova macro foi definida: {}",
+                    macro
+            );
+        }
+        return macro;
+    }
+    
+    /**
+     * Lança a exceção correspondente a um erro sintático encontrado pelo
+     * analisador léxico na definição de uma nova macro.
+     * @param token Símbolo léxico de erro.
+     * @param offset Posição inicial da definição no texto de origem.
+     * @throws MacroDefinitionException Ocorreu um erro na definição da nova
+     * macro.
+     * @throws MalformedMacroException A nova macro está mal formada.
+     * @throws MalformedArgumentException Um dos argumentos está mal formado.
+     */
+    private static void failDefinition(Token token, int offset)
+            throws MacroDefinitionException, MalformedMacroException,
+            MalformedArgumentException {
+        int cursor = token.getStart() - offset;
+        switch (token.getState()) {
+            case Lexer.DEFINITION:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Era esperado o símbolo de início de macro na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.OPENING:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Encontrei '(' na posição %d. Ele não pode ser delimitador pois indica o início da lista de parâmetros.",
+                                cursor
+                        )
+                );
+            case Lexer.ARGUMENTS:
+                throw new MalformedArgumentException(
+                        String.format(
+                                "Era esperado um início de macro simples na posição %d para definição do argumento.",
+                                cursor
+                        )
+                );
+            case Lexer.ARGUMENT_CLOSING:
+                throw new MalformedArgumentException(
+                        String.format(
+                                "Era esperado um delimitador de fechamento do parâmetro na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.SEPARATOR:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Era esperado o término da definição dos parâmetros da macro ou o separador de parâmetros na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.NAME_CLOSING:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Era esperado o delimitador de término '%c' da nova macro na posição %d.",
+                                token.getDelimiter(),
+                                cursor
+                        )
+                );
+            case Lexer.CLOSING:
+                throw new MalformedMacroException(
+                        String.format(
+                                "Era esperado o símbolo de fechamento da nova macro na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.ASSIGNMENT:
+                throw new MacroDefinitionException(
+                        String.format(
+                                "Era esperado o símbolo de atribuição à nova macro na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.BODY_OPENING:
+                throw new MacroDefinitionException(
+                        String.format(
+                                "Era esperado o símbolo de início da definição do corpo da nova macro na posição %d.",
+                                cursor
+                        )
+                );
+            case Lexer.BODY_CLOSING:
+                throw new MacroDefinitionException(
+                        String.format(
+                                "Era esperado o término do delimitador do corpo da definição da nova macro na posição %d.",
+                                cursor
+                        )
+                );
+            default:
+                throw new MacroDefinitionException(
+                        String.format(
+                                "Existe um símbolo inválido após a definição da macro, na posição %d.",
+                                cursor
+                        )
+                );
+        }
+    }
+    
+    /**
+     * Verifica se o símbolo informado pertence à classe de símbolos ignorados
+     * pelo autômato adaptativo.
+     * @param symbol Símbolo a ser verificado.
+     * @return Valor lógico indicando se o símbolo pertence à classe de
+     * ignorados.
+     */
+    public static boolean ignore(char symbol) {
+        return Lexer.isBlank(symbol);
+    }
+    
+    /**
+     * Obtém o índice da condição de acordo com o valor informado.
+     * @param value Valor textual.
+     * @return Índice paramétrico de acordo com o valor informado.
+     * @throws InvalidConditionValueException O valor informado é inválido
+     */
+    public static int getConditionIndex(String value)
+            throws InvalidConditionValueException {
+        
+        // quando a condição é verdadeira, retorna-se o segundo parâmetro da
+        // lista de parâmetros (bloco de "então")
+        if (value.equals("true")) {
+            return 2;
+        }
+        else {
+            
+            // quando a condição é verdadeira, retorna-se o terceiro parâmetro
+            // da lista de parâmetros (bloco de "senão")
+            if (value.equals("false")) {
+                return 3;
+            }
+            else {
+                
+                // o valor informado é inválido, lançar exceção
+                throw new InvalidConditionValueException(
+                        "Encontrei um valor inválido para a condição a ser testada."
+                );
+            }
+        }
+    }
+    
+    /**
+     * Realiza a limpeza do nome da macro e retorna a versão tratada.
+     * @param name Nome da macro a ser limpa.
+     * @return Nome da macro já tratada.
+     * @throws MalformedMacroException O nome da macro não pode ser vazio.
+     */
+    public static String sanitize(String name) throws MalformedMacroException {
+        
+        // cada sequência de espaços em branco é substituída por um único
+        // espaço, sem o uso de expressões regulares; os espaços nas
+        // extremidades são descartados
+        String result = normalize(name).trim();
+        if (result.isEmpty()) {
+            throw new MalformedMacroException(
+                    "O nome da macro não pode ser vazio."
+            );
+        }
+        else {
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Macro;
+
+/**
+ * Representa o resultado da procura de uma macro: a macro encontrada e o
+ * escopo em que foi encontrada.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Resolution {
+    
+    // escopo em que a macro foi encontrada
+    private final Scope scope;
+    
+    // macro encontrada
+    private final Macro macro;
+
+    /**
+     * Construtor.
+     * @param scope Escopo em que a macro foi encontrada.
+     * @param macro Macro encontrada.
+     */
+    Resolution(Scope scope, Macro macro) {
+        this.scope = scope;
+        this.macro = macro;
+    }
+
+    /**
+     * Obtém o escopo em que a macro foi encontrada.
+     * @return Escopo da macro.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Obtém a macro encontrada.
+     * @return Macro encontrada.
+     */
+    public Macro getMacro() {
+        return macro;
+    }
+    
+}
@@ -0,0 +1,235 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Macro;
+import br.usp.poli.lta.cereda.macro.model.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Representa um escopo da cadeia de escopos do controlador. Cada escopo
+ * aponta para o escopo não vazio imediatamente abaixo dele, de modo que a
+ * cadeia pode ser compartilhada entre controladores distintos; os escopos
+ * vazios não são representados na cadeia. Um escopo com uma única macro,
+ * como o do elemento corrente de uma iteração, a mantém diretamente; o mapa
+ * de macros é criado apenas na segunda adição e, quando proveniente de outro
+ * controlador, copiado apenas na primeira modificação. Cada escopo local
+ * mantém ainda um filtro das assinaturas definidas nele e nos escopos locais
+ * abaixo dele, de modo que a procura de uma macro que nenhum escopo local
+ * pode conter segue diretamente para o escopo global.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class Scope {
+    
+    // escopo não vazio imediatamente abaixo
+    private final Scope parent;
+    
+    // posição do escopo na pilha (o escopo global ocupa a posição 0)
+    private final int index;
+    
+    // única macro do escopo, enquanto o mapa de macros não for necessário
+    private Macro single;
+    
+    // macros do escopo, indexadas pela assinatura; nulo se o escopo está
+    // vazio ou possui uma única macro
+    private Map<Signature, Macro> macros;
+    
+    // indica se o mapa de macros pertence a outro controlador
+    private boolean shared;
+    
+    // indica se o escopo pode fazer parte do filtro de outros escopos, isto
+    // é, se foi copiado ou se já possui escopos acima dele
+    private boolean observed;
+    
+    // versão da cadeia, mantida apenas no escopo global e incrementada a
+    // cada definição em um escopo observado
+    private int version;
+    
+    // filtro das assinaturas definidas no escopo
+    private long own;
+    
+    // filtro das assinaturas definidas no escopo e nos escopos locais abaixo
+    // dele, e a versão da cadeia em que foi calculado
+    private long filter;
+    private int computed = -1;
+
+    /**
+     * Construtor de um escopo vazio.
+     * @param parent Escopo não vazio imediatamente abaixo.
+     * @param index Posição do escopo na pilha.
+     */
+    Scope(Scope parent, int index) {
+        this.parent = parent;
+        this.index = index;
+        if (parent != null) {
+            parent.observe();
+        }
+    }
+
+    /**
+     * Construtor de um escopo global cujas macros pertencem a outro
+     * controlador; o mapa é copiado na primeira modificação.
+     * @param macros Macros do escopo.
+     */
+    Scope(Map<Signature, Macro> macros) {
+        this.parent = null;
+        this.index = 0;
+        this.macros = macros;
+        this.shared = true;
+    }
+
+    /**
+     * Obtém o escopo não vazio imediatamente abaixo.
+     * @return Escopo abaixo, ou nulo caso este seja o escopo global.
+     */
+    Scope getParent() {
+        return parent;
+    }
+
+    /**
+     * Obtém a posição do escopo na pilha.
+     * @return Posição do escopo, sendo 0 a posição do escopo global.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Indica que o escopo pode fazer parte do filtro de outros escopos.
+     */
+    void observe() {
+        observed = true;
+    }
+
+    /**
+     * Verifica se o escopo pode fazer parte do filtro de outros escopos.
+     * @return Valor lógico que indica se uma nova definição no escopo deve
+     * invalidar os filtros já calculados.
+     */
+    boolean isObserved() {
+        return observed;
+    }
+
+    /**
+     * Obtém o filtro das assinaturas definidas neste escopo e nos escopos
+     * locais abaixo dele, recalculando-o caso a cadeia tenha sido alterada
+     * desde o último cálculo. O escopo global não faz parte do filtro.
+     * @param version Versão corrente da cadeia.
+     * @return Filtro das assinaturas.
+     */
+    long getFilter(int version) {
+        if (index == 0) {
+            return 0;
+        }
+        if (computed != version) {
+            filter = own | (parent == null ? 0 : parent.getFilter(version));
+            computed = version;
+        }
+        return filter;
+    }
+
+    /**
+     * Calcula os bits da assinatura informada nos filtros.
+     * @param signature Assinatura da macro.
+     * @return Bits da assinatura.
+     */
+    static long bits(Signature signature) {
+        int hash = signature.hashCode();
+        return (1L << (hash & 63)) | (1L << ((hash >>> 6) & 63));
+    }
+
+    /**
+     * Obtém a versão da cadeia. Apenas o escopo global mantém a versão.
+     * @return Versão da cadeia.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Incrementa a versão da cadeia, invalidando os filtros já calculados.
+     * Apenas o escopo global mantém a versão.
+     */
+    void touch() {
+        version++;
+    }
+
+    /**
+     * Obtém a macro com a assinatura informada.
+     * @param signature Assinatura da macro.
+     * @return Macro encontrada, ou nulo caso esta não exista no escopo.
+     */
+    public Macro get(Signature signature) {
+        if (single != null) {
+            return single.getSignature().equals(signature) ? single : null;
+        }
+        return macros == null ? null : macros.get(signature);
+    }
+
+    /**
+     * Obtém as macros do escopo. O mapa não deve ser modificado.
+     * @return Macros do escopo, indexadas pela assinatura.
+     */
+    Map<Signature, Macro> getMacros() {
+        if (macros == null) {
+            macros = new HashMap<>();
+            shared = false;
+            if (single != null) {
+                macros.put(single.getSignature(), single);
+                single = null;
+            }
+        }
+        return macros;
+    }
+
+    /**
+     * Adiciona a macro ao escopo, caso não exista outra macro com a mesma
+     * assinatura.
+     * @param macro Macro a ser adicionada.
+     * @return Um valor lógico informando se a macro foi adicionada.
+     */
+    boolean add(Macro macro) {
+        Signature signature = macro.getSignature();
+        if (macros == null && single == null) {
+            single = macro;
+            own = own | bits(signature);
+            filter = filter | own;
+            return true;
+        }
+        if (get(signature) != null) {
+            return false;
+        }
+        own = own | bits(signature);
+        filter = filter | own;
+        if (macros == null) {
+            getMacros();
+        }
+        else if (shared) {
+            macros = new HashMap<>(macros);
+            shared = false;
+        }
+        macros.put(signature, macro);
+        return true;
+    }
+    
+}
@@ -0,0 +1,322 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Macro;
+import br.usp.poli.lta.cereda.macro.model.Signature;
+import java.util.Map;
+
+/**
+ * Implementa um controlador de escopo. Os escopos formam uma cadeia
+ * persistente, do topo até o escopo global, na qual apenas os escopos não
+ * vazios são representados: empilhar um novo escopo não aloca memória, e uma
+ * cópia do controlador compartilha a cadeia inteira em tempo constante. A
+ * procura de uma macro que nenhum escopo local pode conter, de acordo com o
+ * filtro de assinaturas do topo da cadeia, consulta apenas o escopo global;
+ * a versão da cadeia, incrementada a cada definição em um escopo já
+ * compartilhado, invalida os filtros calculados.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class ScopeController {
+    
+    // define uma única instância do controlador
+    private static final ScopeController instance = new ScopeController();
+    
+    // escopo não vazio mais próximo do topo da pilha
+    private Scope top;
+    
+    // escopo global
+    private Scope root;
+    
+    // número de escopos empilhados
+    private int size;
+    
+    // número de procuras e de procuras que consultaram apenas o escopo
+    // global
+    private long lookups;
+    private long shortcuts;
+    
+    /**
+     * Construtor.
+     */
+    public ScopeController() {
+    }
+    
+    /**
+     * Construtor de um controlador cujo escopo global contém as macros
+     * informadas. O mapa é compartilhado, e não copiado, até que o escopo
+     * global seja modificado; ele não deve ser modificado externamente.
+     * @param macros Macros do escopo global, indexadas pela assinatura.
+     */
+    public ScopeController(Map<Signature, Macro> macros) {
+        root = new Scope(macros);
+        top = root;
+        size = 1;
+    }
+    
+    /**
+     * Construtor de uma cópia.
+     * @param top Escopo não vazio mais próximo do topo da pilha.
+     * @param root Escopo global.
+     * @param size Número de escopos empilhados.
+     */
+    private ScopeController(Scope top, Scope root, int size) {
+        this.top = top;
+        this.root = root;
+        this.size = size;
+    }
+    
+    /**
+     * Obtém a instância do controlador de escopo.
+     * @return A instância do controlador de escopo.
+     */
+    public static ScopeController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtém uma cópia do controlador, em tempo constante. Os escopos
+     * existentes, inclusive o corrente, são compartilhados entre o
+     * controlador e a cópia; os escopos empilhados posteriormente, no
+     * entanto, pertencem apenas ao controlador que os empilhou.
+     * @return Cópia do controlador.
+     */
+    public ScopeController snapshot() {
+        if (size > 0) {
+            current().observe();
+        }
+        return new ScopeController(top, root, size);
+    }
+
+    /**
+     * Obtém o número de escopos empilhados.
+     * @return Número de escopos, incluindo o global.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtém as macros do escopo corrente. O mapa não deve ser modificado.
+     * @return Macros do escopo corrente, indexadas pela assinatura.
+     */
+    public Map<Signature, Macro> getCurrentScope() {
+        return current().getMacros();
+    }
+    
+    /**
+     * Cria um novo escopo vazio no topo da pilha. Apenas o escopo global é
+     * de fato alocado; os demais são alocados na primeira adição de macros.
+     */
+    public void createNewScope() {
+        if (size == 0) {
+            root = new Scope(null, 0);
+            top = root;
+        }
+        size++;
+    }
+    
+    /**
+     * Adiciona a macro informada no escopo corrente.
+     * @param macro Macro a ser adicionada no escopo corrente.
+     * @return Um valor lógico informando se a macro foi adicionada com sucesso
+     * no escopo corrente. É importante destacar que um escopo não admite duas
+     * macros com a mesma assinatura.
+     */
+    public boolean addMacroToCurrentScope(Macro macro) {
+        
+        // a definição invalida os filtros já calculados apenas se o escopo
+        // corrente já pode fazer parte de algum deles; os escopos recém
+        // criados para os parâmetros de uma chamada, por exemplo, não podem
+        Scope scope = current();
+        if (!scope.add(macro)) {
+            return false;
+        }
+        if (scope.isObserved()) {
+            root.touch();
+        }
+        return true;
+    }
+    
+    /**
+     * Adiciona a macro informada no escopo global.
+     * @param macro Macro a ser adicionada no escopo global.
+     * @return Um valor lógico informando se a macro foi adicionada com sucesso
+     * no escopo global. É importante destacar que um escopo não admite duas
+     * macros com a mesma assinatura.
+     */
+    public boolean addMacroToGlobalScope(Macro macro) {
+        if (!root.add(macro)) {
+            return false;
+        }
+        root.touch();
+        return true;
+    }
+    
+    /**
+     * Procura a macro com a assinatura informada, do escopo corrente até o
+     * escopo global. Cada escopo é consultado em tempo constante e os escopos
+     * vazios são ignorados, de modo que o custo da procura depende apenas do
+     * número de escopos não vazios.
+     * @param signature Assinatura da macro.
+     * @return A macro encontrada, ou nulo caso esta não exista nos escopos.
+     */
+    public Macro find(Signature signature) {
+        for (Scope scope = start(signature); scope != null;
+                scope = scope.getParent()) {
+            Macro macro = scope.get(signature);
+            if (macro != null) {
+                return macro;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Procura a macro com a assinatura informada, do escopo corrente até o
+     * escopo global, obtendo também o escopo em que a macro foi encontrada.
+     * @param signature Assinatura da macro.
+     * @return Resultado da procura, ou nulo caso a macro não exista nos
+     * escopos.
+     */
+    public Resolution resolve(Signature signature) {
+        for (Scope scope = start(signature); scope != null;
+                scope = scope.getParent()) {
+            Macro macro = scope.get(signature);
+            if (macro != null) {
+                return new Resolution(scope, macro);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Procura o escopo mais próximo, do corrente até o global, que contém a
+     * macro com a assinatura informada.
+     * @param signature Assinatura da macro.
+     * @return O escopo encontrado, ou nulo caso a macro não exista nos
+     * escopos.
+     */
+    public Scope locate(Signature signature) {
+        for (Scope scope = start(signature); scope != null;
+                scope = scope.getParent()) {
+            if (scope.get(signature) != null) {
+                return scope;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Procura a macro com a assinatura informada apenas no escopo corrente.
+     * @param signature Assinatura da macro.
+     * @return A macro encontrada, ou nulo caso esta não exista no escopo.
+     */
+    public Macro findInCurrentScope(Signature signature) {
+        if (top == null || top.getIndex() != size - 1) {
+            return null;
+        }
+        return top.get(signature);
+    }
+    
+    /**
+     * Remove o escopo corrente.
+     */
+    public void removeCurrentScope() {
+        if (top.getIndex() == size - 1) {
+            top = top.getParent();
+        }
+        size--;
+        if (size == 0) {
+            top = null;
+            root = null;
+        }
+    }
+    
+    /**
+     * Remove os escopos empilhados acima do número informado, como ao término
+     * de uma expansão interrompida por uma exceção.
+     * @param size Número de escopos a serem mantidos.
+     */
+    public void removeScopesAbove(int size) {
+        while (this.size > size) {
+            removeCurrentScope();
+        }
+    }
+    
+    /**
+     * Remove todos os escopos, inclusive o global.
+     */
+    public void clear() {
+        top = null;
+        root = null;
+        size = 0;
+    }
+    
+    /**
+     * Obtém o número de procuras feitas pelo controlador.
+     * @return Número de procuras.
+     */
+    public long getLookups() {
+        return lookups;
+    }
+    
+    /**
+     * Obtém o número de procuras que, de acordo com o filtro de assinaturas,
+     * consultaram apenas o escopo global.
+     * @return Número de procuras diretas ao escopo global.
+     */
+    public long getShortcuts() {
+        return shortcuts;
+    }
+    
+    /**
+     * Obtém o escopo a partir do qual a procura da assinatura informada deve
+     * começar: o topo da cadeia ou, caso nenhum escopo local possa conter a
+     * assinatura, o escopo global.
+     * @param signature Assinatura da macro.
+     * @return Escopo inicial da procura, ou nulo caso não haja escopos.
+     */
+    private Scope start(Signature signature) {
+        lookups++;
+        if (top == root || top == null) {
+            return top;
+        }
+        if ((top.getFilter(root.getVersion()) & Scope.bits(signature)) == 0) {
+            shortcuts++;
+            return root;
+        }
+        return top;
+    }
+    
+    /**
+     * Obtém o escopo corrente, alocando-o caso ainda esteja vazio.
+     * @return Escopo corrente.
+     */
+    private Scope current() {
+        if (top.getIndex() != size - 1) {
+            top = new Scope(top, size - 1);
+        }
+        return top;
+    }
+    
+}
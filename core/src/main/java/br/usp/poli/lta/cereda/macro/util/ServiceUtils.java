@@ -0,0 +1,70 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementa a procura das implementações fornecidas pelos módulos presentes
+ * no classpath, declaradas em 'META-INF/services'. A procura utiliza o
+ * carregador de classes do próprio núcleo, de modo que cada carregador enxerga
+ * apenas os módulos carregados junto com ele.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ServiceUtils {
+    
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(ServiceUtils.class);
+
+    /**
+     * Obtém a primeira implementação disponível do serviço informado.
+     * @param <T> Tipo do serviço.
+     * @param service Classe do serviço.
+     * @return Implementação do serviço, ou nulo caso nenhum módulo forneça
+     * uma implementação válida.
+     */
+    public static <T> T find(Class<T> service) {
+        try {
+            Iterator<T> iterator = ServiceLoader.load(
+                    service,
+                    ServiceUtils.class.getClassLoader()
+            ).iterator();
+            if (iterator.hasNext()) {
+                return iterator.next();
+            }
+        }
+        catch (ServiceConfigurationError error) {
+            logger.warn(
+                    "Não foi possível carregar a implementação de '{}': {}",
+                    service.getSimpleName(),
+                    error.getMessage()
+            );
+        }
+        return null;
+    }
+    
+}
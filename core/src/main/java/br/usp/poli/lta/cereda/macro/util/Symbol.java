@@ -0,0 +1,73 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+/**
+ * Representa um nome (de macro) registrado na tabela de símbolos. Há um único
+ * símbolo para cada nome em uso, de modo que os símbolos são comparados pela
+ * identidade; o código de hash do nome é calculado uma única vez.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public final class Symbol {
+    
+    // nome já normalizado
+    private final String name;
+    
+    // código de hash do nome
+    private final int hash;
+
+    /**
+     * Construtor.
+     * @param name Nome já normalizado.
+     */
+    Symbol(String name) {
+        this.name = name;
+        this.hash = name.hashCode();
+    }
+
+    /**
+     * Obtém o nome do símbolo.
+     * @return Nome já normalizado.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtém a identificação de hash do objeto corrente.
+     * @return Código de hash do nome.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Fornece uma representação textual do símbolo.
+     * @return Nome do símbolo.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+    
+}
@@ -0,0 +1,131 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementa a tabela de símbolos do expansor de macros, que associa cada
+ * nome de macro já normalizado a um único símbolo. Os nomes são convertidos
+ * uma única vez, na compilação ou na definição, de modo que as assinaturas
+ * são comparadas pela identidade dos seus símbolos, sem a comparação de
+ * cadeias. A tabela é compartilhada por todos os contextos e pode ser
+ * consultada em paralelo; como os textos expandidos podem vir de fontes não
+ * confiáveis, cada símbolo permanece na tabela apenas enquanto for
+ * referenciado por alguma assinatura, e as consultas nunca registram nomes.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class SymbolTable {
+    
+    // símbolos dos nomes em uso
+    private static final ConcurrentMap<String, Entry> symbols =
+            new ConcurrentHashMap<>();
+    
+    // entradas cujos símbolos não são mais referenciados
+    private static final ReferenceQueue<Symbol> queue =
+            new ReferenceQueue<>();
+
+    /**
+     * Construtor privado, a tabela é acessada apenas através dos métodos
+     * estáticos.
+     */
+    private SymbolTable() {
+    }
+
+    /**
+     * Obtém o símbolo do nome informado, registrando-o caso o nome não esteja
+     * em uso.
+     * @param name Nome já normalizado.
+     * @return Símbolo do nome.
+     */
+    public static Symbol intern(String name) {
+        expunge();
+        while (true) {
+            Entry entry = symbols.get(name);
+            Symbol symbol = entry == null ? null : entry.get();
+            if (symbol != null) {
+                return symbol;
+            }
+            
+            // a entrada de um símbolo já descartado é substituída
+            symbol = new Symbol(name);
+            Entry created = new Entry(symbol, queue);
+            if (entry == null ? symbols.putIfAbsent(name, created) == null :
+                    symbols.replace(name, entry, created)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * Obtém o símbolo do nome informado, sem registrá-lo.
+     * @param name Nome já normalizado.
+     * @return Símbolo do nome, ou nulo caso o nome não esteja em uso.
+     */
+    public static Symbol lookup(String name) {
+        Entry entry = symbols.get(name);
+        return entry == null ? null : entry.get();
+    }
+
+    /**
+     * Obtém o número de nomes em uso.
+     * @return Número de nomes registrados e ainda referenciados.
+     */
+    public static int size() {
+        expunge();
+        return symbols.size();
+    }
+
+    /**
+     * Remove da tabela as entradas cujos símbolos não são mais referenciados.
+     */
+    private static void expunge() {
+        Entry entry;
+        while ((entry = (Entry) queue.poll()) != null) {
+            symbols.remove(entry.name, entry);
+        }
+    }
+
+    /**
+     * Entrada da tabela, que referencia o símbolo sem impedir o seu descarte.
+     */
+    private static class Entry extends WeakReference<Symbol> {
+        
+        // nome do símbolo
+        private final String name;
+
+        /**
+         * Construtor.
+         * @param symbol Símbolo do nome.
+         * @param queue Fila das entradas descartadas.
+         */
+        Entry(Symbol symbol, ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.name = symbol.getName();
+        }
+        
+    }
+    
+}
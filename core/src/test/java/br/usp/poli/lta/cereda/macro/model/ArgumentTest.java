@@ -0,0 +1,186 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import java.util.HashMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Testes da expansão adiada dos argumentos das macros paramétricas. Cada
+ * texto é expandido em um contexto novo; os argumentos referenciados têm o
+ * mesmo valor obtido pela expansão imediata, e os efeitos observáveis ocorrem
+ * na mesma ordem.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ArgumentTest {
+
+    /**
+     * Expande o texto em um contexto novo, isolado dos demais.
+     * @param text Texto a ser expandido.
+     * @return Texto expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    private static String expand(String text) throws Exception {
+        return MacroExpander.parse(text, new ExpansionContext());
+    }
+
+    /**
+     * Cria uma macro simples com o corpo já compilado.
+     * @param name Nome da macro.
+     * @param body Corpo da macro.
+     * @return Macro simples.
+     */
+    private static Macro macro(String name, String body) {
+        return new Macro(name, new HashMap<Integer, String>(),
+                Compiler.compile(body));
+    }
+
+    /**
+     * Os textos puros cujas macros chamadas também são puras têm a sua
+     * expansão adiada; os textos com efeitos observáveis, direta ou
+     * indiretamente, e os que chamam macros inexistentes não.
+     * @throws Exception Ocorreu um erro na compilação.
+     */
+    @Test
+    public void deferPureArguments() throws Exception {
+        ScopeController scopes = new ScopeController();
+        scopes.createNewScope();
+        scopes.addMacroToCurrentScope(macro("x", "[\\.y.\\]"));
+        scopes.addMacroToCurrentScope(macro("y", "\\.repeat(\\;2;\\," +
+                "\\:y:\\).\\"));
+        scopes.addMacroToCurrentScope(macro("next",
+                "\\.increment counter(\\,c,\\).\\"));
+        scopes.addMacroToCurrentScope(macro("wrap", "(\\.next.\\)"));
+        assertTrue(Compiler.compile("abc").isDeferrable(scopes));
+        assertTrue(Compiler.compile("a\\.x.\\b").isDeferrable(scopes));
+        assertTrue(Compiler.compile(
+                "\\.for each(\\,a,\\,\\:\\.x.\\\\.it.\\:\\).\\"
+        ).isDeferrable(scopes));
+        assertFalse(Compiler.compile("\\.next.\\").isDeferrable(scopes));
+        assertFalse(Compiler.compile("\\.wrap.\\").isDeferrable(scopes));
+        assertFalse(Compiler.compile("\\.z.\\").isDeferrable(scopes));
+        assertFalse(Compiler.compile(
+                "\\.new counter(\\,d,\\).\\"
+        ).isDeferrable(scopes));
+    }
+
+    /**
+     * Os argumentos que chamam macros com efeitos colaterais são expandidos
+     * na ordem da chamada, e não na ordem das referências no corpo.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void keepOrderOfEffects() throws Exception {
+        assertEquals("[2 1]", expand(
+                "\\.new counter(\\,c,\\).\\\\.define(\\|\\.next.\\ = \\{" +
+                "\\.increment counter(\\,c,\\).\\\\.counter(\\,c,\\).\\{" +
+                "\\|\\).\\\\.define(\\|\\.pair(\\;x;\\,\\;y;\\).\\ = \\{[" +
+                "\\.y.\\ \\.x.\\]{\\|\\).\\\\.pair(\\,\\.next.\\,\\,\\:\\" +
+                ".next.\\:\\).\\"
+        ));
+    }
+
+    /**
+     * Os efeitos colaterais de um argumento não referenciado no corpo da
+     * macro também ocorrem.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void keepEffectsOfUnreferencedArguments() throws Exception {
+        assertEquals("-2", expand(
+                "\\.new counter(\\,d,\\).\\\\.define(\\|\\.next.\\ = \\{" +
+                "\\.increment counter(\\,d,\\).\\\\.counter(\\,d,\\).\\{" +
+                "\\|\\).\\\\.define(\\|\\.skip(\\;x;\\).\\ = \\{-{\\|\\)." +
+                "\\\\.skip(\\,\\.next.\\,\\).\\\\.increment counter(\\,d," +
+                "\\).\\\\.counter(\\,d,\\).\\"
+        ));
+    }
+
+    /**
+     * Os argumentos puros não referenciados no corpo da macro nunca são
+     * expandidos; a macro chamada pelo argumento falharia caso fosse.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void skipUnreferencedArguments() throws Exception {
+        assertEquals("-", expand(
+                "\\.define(\\|\\.expensive.\\ = \\{\\.expensive." +
+                "\\{\\|\\).\\\\.define(\\|\\.skip(\\;x;\\).\\ = " +
+                "\\{-{\\|\\).\\\\.skip(\\,\\.expensive.\\,\\).\\"
+        ));
+        assertEquals("-", expand(
+                "\\.define(\\|\\.skip(\\;x;\\).\\ = \\{-{\\|\\).\\\\.skip" +
+                "(\\%\\.repeat(\\;x;\\,\\:a:\\).\\%\\).\\"
+        ));
+    }
+
+    /**
+     * Os argumentos puros são expandidos na primeira referência ao parâmetro
+     * correspondente.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test(expected = PotentialInfiniteRecursionException.class)
+    public void expandOnFirstReference() throws Exception {
+        expand(
+                "\\.define(\\|\\.expensive.\\ = \\{\\.expensive." +
+                "\\{\\|\\).\\\\.define(\\|\\.use(\\;x;\\).\\ = " +
+                "\\{-\\.x.\\{\\|\\).\\\\.use(\\,\\.expensive.\\,\\).\\"
+        );
+    }
+
+    /**
+     * As macros globais definidas pelo corpo não são visíveis ao argumento,
+     * expandido antes do corpo.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test(expected = MacroNotFoundException.class)
+    public void hideLaterGlobalDefinitions() throws Exception {
+        expand(
+                "\\.define(\\|\\.f(\\;x;\\).\\ = \\{\\.global define(\\:" +
+                "\\.z.\\ = \\<new<\\:\\).\\[\\.x.\\]{\\|\\).\\\\.f(\\,\\." +
+                "z.\\,\\).\\"
+        );
+    }
+
+    /**
+     * As referências a parâmetros repassadas a outras macros mantêm o valor
+     * do argumento original.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void forwardParameters() throws Exception {
+        assertEquals("abab", expand(
+                "\\.define(\\|\\.id(\\;x;\\).\\ = \\{\\.x.\\{\\|\\).\\\\." +
+                "define(\\|\\.twice(\\;y;\\).\\ = \\{\\.id(\\,\\.y.\\,\\)" +
+                ".\\\\.id(\\,\\.y.\\,\\).\\{\\|\\).\\\\.twice(\\,ab,\\)." +
+                "\\"
+        ));
+    }
+
+}
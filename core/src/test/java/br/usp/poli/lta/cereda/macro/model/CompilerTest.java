@@ -0,0 +1,109 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes da compilação de textos e corpos de macros em sequências de nós.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class CompilerTest {
+
+    /**
+     * Os trechos literais, as chamadas, as primitivas e as referências a
+     * parâmetros são compilados em nós distintos.
+     */
+    @Test
+    public void compileNodes() {
+        Program program = Compiler.compile(
+                new Slice("a\\.f(\\,x,\\).\\b\\.repeat(\\;2;\\,\\:c:\\).\\" +
+                "\\.p.\\"),
+                Arrays.asList("p"));
+        List<Node> nodes = program.getNodes();
+        assertEquals(5, nodes.size());
+        assertEquals(NodeType.TEXT, nodes.get(0).getType());
+        assertEquals("a", nodes.get(0).getText());
+        assertEquals(NodeType.MACRO, nodes.get(1).getType());
+        assertEquals(new Signature("f", 1), nodes.get(1).getSignature());
+        assertEquals("x", nodes.get(1).getArgument(1).getSource());
+        assertEquals(NodeType.TEXT, nodes.get(2).getType());
+        assertEquals(NodeType.PRIMITIVE, nodes.get(3).getType());
+        assertEquals(Primitive.REPEAT, nodes.get(3).getPrimitive());
+        assertEquals(NodeType.PARAMETER, nodes.get(4).getType());
+    }
+
+    /**
+     * Um erro sintático é registrado como um nó e lançado apenas na
+     * execução, depois dos efeitos das macros anteriores.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void deferSyntaxError() throws Exception {
+        String text = "\\.new counter(\\,c,\\).\\abc\\.f(\\,x";
+        List<Node> nodes = Compiler.compile(text).getNodes();
+        assertEquals(NodeType.ERROR, nodes.get(nodes.size() - 1).getType());
+        assertNotNull(nodes.get(nodes.size() - 1).getError());
+        assertFalse(nodes.get(nodes.size() - 1).isMalformedArgument());
+        ExpansionContext context = new ExpansionContext();
+        try {
+            MacroExpander.parse(text, context);
+            fail("O erro sintático não foi lançado.");
+        }
+        catch (MalformedMacroException exception) {
+            // o erro é lançado ao alcançar a sua posição
+        }
+        assertEquals("0", MacroExpander.parse(
+                "\\.counter(\\,c,\\).\\", context));
+    }
+
+    /**
+     * O corpo de uma macro da biblioteca é compilado uma única vez e
+     * compartilhado entre os contextos criados a partir dela.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void compileBodyOnce() throws Exception {
+        Library library = Library.load(
+                "\\.define(\\|\\.f(\\;x;\\).\\ = \\{[\\.x.\\]{\\|\\).\\");
+        Macro macro = library.getMacros().iterator().next();
+        Program program = macro.getProgram();
+        assertNotNull(program);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("[a][b]", MacroExpander.parse(
+                    "\\.f(\\,a,\\).\\\\.f(\\,b,\\).\\",
+                    library.createContext()));
+        }
+        assertSame(program, macro.getProgram());
+        assertEquals(NodeType.PARAMETER, program.getNodes().get(1).getType());
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes da restauração do contexto após expansões interrompidas por
+ * exceções. Todos os textos de cada teste são expandidos no mesmo contexto,
+ * como em processos de longa duração.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ExpansionContextTest {
+
+    // textos cujas expansões lançam exceções em pontos distintos da pilha
+    private static final String[] FAILURES = {
+            "abc\\.missing.\\",
+            "\\.define(\\|\\.f(\\;x;\\).\\ = \\{\\.x.\\{\\|\\).\\\\.f" +
+            ".\\",
+            "\\.repeat(\\;x;\\,\\:a:\\).\\",
+            "\\.check condition(\\;maybe;\\,\\:a:\\,\\:b:\\).\\",
+            "\\.new counter(\\,c,\\).\\\\.new counter(\\,c,\\).\\",
+            "\\.define(\\|\\.a.\\ = \\{0{\\|\\).\\\\.define(\\|\\.a." +
+            "\\ = \\{1{\\|\\).\\",
+            "\\.define(\\|\\.r.\\ = \\{\\.r.\\{\\|\\).\\\\.r.\\"
+    };
+
+    // chamadas de macros puras entre redefinições da macro chamada
+    private static final String REDEFINITIONS =
+        "\\.define(\\|\\.q.\\ = \\{\\.a.\\{\\|\\).\\\\.define(\\|" +
+        "\\.w1.\\ = \\{\\.define(\\:\\.a.\\ = \\<1<\\:\\).\\\\.q." +
+        "\\{\\|\\).\\\\.define(\\|\\.w2.\\ = \\{\\.define(\\:\\.a" +
+        ".\\ = \\<2<\\:\\).\\\\.q.\\{\\|\\).\\\\.w1.\\\\.w2.\\\\." +
+        "w1.\\";
+
+    /**
+     * Expande o texto no contexto informado, verificando que a expansão
+     * lança uma exceção.
+     * @param text Texto a ser expandido.
+     * @param context Contexto da expansão.
+     * @return Exceção lançada pela expansão.
+     */
+    private static Exception failure(String text, ExpansionContext context) {
+        try {
+            String result = MacroExpander.parse(text, context);
+            fail(String.format("Era esperada uma exceção, mas o texto foi " +
+                    "expandido para '%s'.", result));
+            return null;
+        }
+        catch (Exception exception) {
+            return exception;
+        }
+    }
+
+    /**
+     * Após as expansões interrompidas, a pilha de escopos e o número de
+     * chamadas aninhadas voltam ao estado inicial, e uma cadeia de chamadas
+     * no limite da profundidade ainda é expandida.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void restoreAfterErrors() throws Exception {
+        ExpansionContext context = new ExpansionContext();
+        for (int i = 0; i < 10; i++) {
+            for (String text : FAILURES) {
+                failure(text, context);
+                assertEquals(0, context.getCalls());
+                assertEquals(0, context.getScopes().size());
+            }
+        }
+        assertEquals("end", MacroExpander.parse(
+                ProgramFrameTest.chain(499, "a", "end"), context));
+    }
+
+    /**
+     * As definições locais de uma expansão interrompida não permanecem
+     * visíveis nas expansões seguintes.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void discardLocalDefinitions() throws Exception {
+        ExpansionContext context = new ExpansionContext();
+        assertEquals(MacroNotFoundException.class, failure(
+                "\\.define(\\|\\.w.\\ = \\{\\.define(\\:\\.g.\\ = \\<G<\\" +
+                ":\\).\\\\.missing.\\{\\|\\).\\\\.w.\\", context).getClass());
+        assertEquals(MacroNotFoundException.class, failure(
+                "\\.g.\\", context).getClass());
+    }
+
+    /**
+     * As chamadas memorizadas continuam consistentes com as redefinições
+     * após expansões interrompidas no mesmo contexto.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void keepMemoAfterErrors() throws Exception {
+        ExpansionContext context = new ExpansionContext();
+        assertEquals("121", MacroExpander.parse(REDEFINITIONS, context));
+        for (String text : FAILURES) {
+            failure(text, context);
+            assertEquals("121", MacroExpander.parse(REDEFINITIONS, context));
+        }
+    }
+    
+}
@@ -0,0 +1,111 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.util.Counters;
+import br.usp.poli.lta.cereda.macro.util.ScopeController;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Testes da memorização das chamadas de macros puras. Cada texto é expandido
+ * em um contexto novo, com e sem o cache, e ambos os resultados devem
+ * coincidir com o esperado.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class MemoCacheTest {
+
+    /**
+     * Expande o texto em um contexto novo, com o cache informado, e verifica
+     * o resultado; o mesmo texto é expandido sem o cache para comparação.
+     * @param expected Texto expandido esperado.
+     * @param text Texto a ser expandido.
+     * @param memo Cache das chamadas de macros puras.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    private static void check(String expected, String text, MemoCache memo)
+            throws Exception {
+        assertEquals(expected, MacroExpander.parse(text, new ExpansionContext(
+                new ScopeController(), new Counters(),
+                ExpansionContext.DEFAULT_LIMIT, new MemoCache(0)
+        )));
+        assertEquals(expected, MacroExpander.parse(text, new ExpansionContext(
+                new ScopeController(), new Counters(),
+                ExpansionContext.DEFAULT_LIMIT, memo
+        )));
+    }
+
+    /**
+     * Uma chamada cujo argumento repassa um parâmetro da macro externa não
+     * reutiliza a expansão obtida com outro valor do parâmetro.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void distinguishForwardedParameters() throws Exception {
+        MemoCache memo = new MemoCache();
+        check("<AA><BB>",
+                "\\.define(\\|\\.p.\\ = \\{<\\.x.\\\\.x.\\>{\\|\\).\\\\.d" +
+                "efine(\\|\\.f(\\;x;\\).\\ = \\{\\.p.\\{\\|\\).\\\\.defin" +
+                "e(\\|\\.g(\\;x;\\).\\ = \\{\\.f(\\,\\:x:\\,\\).\\{\\|\\)" +
+                ".\\\\.g(\\,A,\\).\\\\.g(\\,B,\\).\\",
+                memo
+        );
+        assertTrue(memo.size() > 0);
+    }
+
+    /**
+     * Uma macro local que oculta a macro consultada pela chamada memorizada
+     * impede o reaproveitamento da expansão, que volta a ocorrer após o
+     * término do escopo local.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void followShadowing() throws Exception {
+        check("1z 3z 1z",
+                "\\.define(\\|\\.a.\\ = \\{1{\\|\\).\\\\.define(\\|\\.q(" +
+                "\\;x;\\).\\ = \\{\\.a.\\\\.x.\\{\\|\\).\\\\.define(\\|\\" +
+                ".w.\\ = \\{\\.define(\\:\\.a.\\ = \\<3<\\:\\).\\\\.q(\\," +
+                "z,\\).\\{\\|\\).\\\\.q(\\,z,\\).\\ \\.w.\\ \\.q(\\,z,\\)" +
+                ".\\",
+                new MemoCache()
+        );
+    }
+
+    /**
+     * Uma redefinição entre duas chamadas memorizadas, no mesmo corpo, é
+     * observada pela segunda chamada.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void followRedefinitions() throws Exception {
+        check("1z3z 1z3z",
+                "\\.define(\\|\\.a.\\ = \\{1{\\|\\).\\\\.define(\\|\\.q(" +
+                "\\;x;\\).\\ = \\{\\.a.\\\\.x.\\{\\|\\).\\\\.define(\\|\\" +
+                ".r.\\ = \\{\\.q(\\,z,\\).\\\\.define(\\:\\.a.\\ = \\<3<" +
+                "\\:\\).\\\\.q(\\,z,\\).\\{\\|\\).\\\\.r.\\ \\.r.\\",
+                new MemoCache()
+        );
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Testes das primitivas de repetição e de iteração. A primeira expansão do
+ * corpo de uma repetição é reproduzida nas seguintes apenas quando não altera
+ * nem consulta o estado da expansão; os corpos com contadores, definições ou
+ * o elemento corrente são expandidos a cada repetição.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class PrimitiveFrameTest {
+
+    /**
+     * Expande o texto em um contexto novo e verifica o resultado.
+     * @param expected Texto expandido esperado.
+     * @param text Texto a ser expandido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    private static void check(String expected, String text)
+            throws Exception {
+        assertEquals(expected, MacroExpander.parse(text,
+                new ExpansionContext()));
+    }
+
+    /**
+     * Um corpo puro, literal ou com chamadas de macros, é repetido.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void repeatPureBody() throws Exception {
+        check("ababab",
+                "\\.repeat(\\;3;\\,\\:ab:\\).\\");
+        check("xxx",
+                "\\.define(\\|\\.a.\\ = \\{x{\\|\\).\\\\.repeat(\\;3;\\," +
+                "\\:\\.a.\\:\\).\\");
+    }
+
+    /**
+     * Os contadores são alterados e consultados a cada repetição, tanto no
+     * corpo da repetição quanto no corpo de uma macro chamada por ele.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void countInRepeat() throws Exception {
+        check("123",
+                "\\.new counter(\\,c,\\).\\\\.repeat(\\;3;\\,\\:\\.increm" +
+                "ent counter(\\%c%\\).\\\\.counter(\\%c%\\).\\:\\).\\");
+        check("123",
+                "\\.new counter(\\,c,\\).\\\\.define(\\|\\.n.\\ = \\{\\.i" +
+                "ncrement counter(\\,c,\\).\\\\.counter(\\,c,\\).\\{\\|\\" +
+                ").\\\\.repeat(\\;3;\\,\\:\\.n.\\:\\).\\");
+        check("znnn",
+                "\\.new counter(\\,c,\\).\\\\.repeat(\\;4;\\,\\:\\.check " +
+                "condition(\\%\\.is zero(\\<\\.counter(\\^c^\\).\\<\\).\\" +
+                "%\\,\\%z%\\,\\%n%\\).\\\\.increment counter(\\%c%\\).\\:" +
+                "\\).\\");
+    }
+
+    /**
+     * Os contadores são alterados e consultados a cada iteração, junto ao
+     * elemento corrente.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void countInForEach() throws Exception {
+        check("a1 b2 ",
+                "\\.new counter(\\,c,\\).\\\\.for each(\\,a,\\,\\,b,\\,\\" +
+                ":\\.increment counter(\\%c%\\).\\\\.it.\\\\.counter(\\%c" +
+                "%\\).\\ :\\).\\");
+        check("a1b2c3",
+                "\\.new counter(\\,c,\\).\\\\.define(\\|\\.n.\\ = \\{\\.i" +
+                "ncrement counter(\\,c,\\).\\\\.counter(\\,c,\\).\\{\\|\\" +
+                ").\\\\.for each(\\,a,\\,\\,b,\\,\\,c,\\,\\:\\.it.\\\\.n." +
+                "\\:\\).\\");
+    }
+
+    /**
+     * Cada repetição tem o seu próprio escopo, de modo que uma definição no
+     * corpo não é duplicada, e as iterações aninhadas mantêm o elemento
+     * corrente de cada nível.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void scopeEachIteration() throws Exception {
+        check("yy",
+                "\\.repeat(\\;2;\\,\\:\\.define(\\%\\.a.\\ = \\<y<\\%\\)." +
+                "\\\\.a.\\:\\).\\");
+        check("ab[1]ab[2]",
+                "\\.for each(\\,1,\\,\\,2,\\,\\:\\.for each(\\%a%\\,\\%b%" +
+                "\\,\\%\\.it.\\%\\).\\[\\.it.\\]:\\).\\");
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MalformedMacroException;
+import br.usp.poli.lta.cereda.macro.model.exceptions.PotentialInfiniteRecursionException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes da execução dos textos compilados pela pilha explícita de quadros.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ProgramFrameTest {
+
+    /**
+     * Um erro sintático no corpo de uma macro da biblioteca, compilado uma
+     * única vez e executado em contextos distintos, lança uma nova exceção a cada execução, com a mesma
+     * mensagem.
+     * @throws Exception Ocorreu um erro na carga da biblioteca.
+     */
+    @Test
+    public void throwNewErrorEachTime() throws Exception {
+        Library library = Library.load(
+                "\\.define(\\|\\.bad.\\ = \\{x \\.y(\\,a{\\|\\).\\"
+        );
+        Exception first = expand(library, "\\.bad.\\");
+        Exception second = expand(library, "\\.bad.\\");
+        assertNotSame(first, second);
+        assertEquals(first.getMessage(), second.getMessage());
+    }
+
+    /**
+     * As cadeias de chamadas atingem o limite de chamadas aninhadas na mesma
+     * profundidade da versão 1.0, com e sem argumentos; um argumento que
+     * chama uma macro soma uma chamada aninhada.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void stopAtCallLimit() throws Exception {
+        assertEquals("end", MacroExpander.parse(chain(499, "a", "end"),
+                new ExpansionContext()));
+        assertLimit(chain(500, "a", "end"));
+        assertEquals("end", MacroExpander.parse(chain(499, null, "end"),
+                new ExpansionContext()));
+        assertLimit(chain(500, null, "end"));
+        assertEquals("E", MacroExpander.parse(
+                chain(498, "\\.e.\\", "\\.x.\\"), new ExpansionContext()));
+        assertLimit(chain(499, "\\.e.\\", "\\.x.\\"));
+    }
+
+    /**
+     * A profundidade das chamadas aninhadas é limitada apenas pelo limite do
+     * contexto, e não pela pilha da linha de execução.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void expandBeyondThreadStack() throws Exception {
+        assertEquals("end", MacroExpander.parse(chain(20000, null, "end"),
+                new ExpansionContext(30000)));
+    }
+
+    /**
+     * Gera uma cadeia de macros, em que cada macro chama a seguinte e a
+     * última resulta no corpo informado. A macro 'e' resulta em 'E'.
+     * @param length Número de macros da cadeia.
+     * @param argument Argumento de cada chamada, ou nulo para macros sem
+     * parâmetros.
+     * @param last Corpo da última macro da cadeia.
+     * @return Texto que define e chama a cadeia.
+     */
+    static String chain(int length, String argument, String last) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\\.define(\\|\\.e.\\ = \\{E{\\|\\).\\");
+        for (int i = 1; i <= length; i++) {
+            sb.append("\\.define(\\|");
+            sb.append(argument == null ? String.format("\\.m%d.\\", i) :
+                    String.format("\\.m%d(\\;x;\\).\\", i));
+            sb.append(" = \\{");
+            sb.append(i < length ? call(i + 1, argument) : last);
+            sb.append("{\\|\\).\\");
+        }
+        return sb.append(call(1, argument)).toString();
+    }
+
+    /**
+     * Gera a chamada de uma macro da cadeia.
+     * @param index Posição da macro na cadeia.
+     * @param argument Argumento da chamada, ou nulo para a chamada sem
+     * argumentos.
+     * @return Texto da chamada.
+     */
+    private static String call(int index, String argument) {
+        return argument == null ? String.format("\\.m%d.\\", index) :
+                String.format("\\.m%d(\\,%s,\\).\\", index, argument);
+    }
+
+    /**
+     * Verifica que a expansão do texto em um contexto novo atinge o limite
+     * de chamadas aninhadas.
+     * @param text Texto a ser expandido.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    private static void assertLimit(String text) throws Exception {
+        try {
+            MacroExpander.parse(text, new ExpansionContext());
+            fail("O limite de chamadas aninhadas não foi atingido.");
+        }
+        catch (PotentialInfiniteRecursionException exception) {
+            // o limite foi atingido
+        }
+    }
+
+    /**
+     * Expande o texto em um novo contexto da biblioteca, esperando uma macro
+     * mal formada.
+     * @param library Biblioteca de macros.
+     * @param text Texto a ser expandido.
+     * @return Exceção lançada na expansão.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    private static Exception expand(Library library, String text)
+            throws Exception {
+        try {
+            MacroExpander.parse(text, library.createContext());
+            fail("A macro mal formada não foi detectada.");
+            return null;
+        }
+        catch (MalformedMacroException exception) {
+            return exception;
+        }
+    }
+
+}
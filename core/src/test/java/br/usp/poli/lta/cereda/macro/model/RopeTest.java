@@ -0,0 +1,139 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes do texto composto utilizado nas repetições e nas chamadas
+ * memorizadas.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class RopeTest {
+
+    /**
+     * Os trechos curtos e longos, e os textos compostos acrescentados, são
+     * mantidos na ordem.
+     */
+    @Test
+    public void keepOrder() {
+        StringBuilder expected = new StringBuilder();
+        Rope inner = new Rope();
+        Rope rope = new Rope();
+        for (int i = 0; i < 100; i++) {
+            String text = i % 10 == 0 ? repeat('x', 100 + i) :
+                    String.valueOf(i);
+            inner.append(text, 1, text.length());
+            rope.append(text);
+            expected.append(text);
+        }
+        rope.append(inner);
+        expected.append(inner.toString());
+        rope.append("end");
+        expected.append("end");
+        assertEquals(expected.length(), rope.length());
+        assertEquals(expected.toString(), rope.toString());
+        StringSink sink = new StringSink();
+        rope.appendTo(sink);
+        assertEquals(expected.toString(), sink.toString());
+    }
+
+    /**
+     * As repetições aninhadas são representadas sem cópia e produzem o texto
+     * repetido.
+     */
+    @Test
+    public void repeatNested() {
+        Rope line = new Rope();
+        line.append(repeat('a', 70));
+        line.append("\n");
+        Rope page = line.repeat(1000);
+        Rope book = page.repeat(1000);
+        assertEquals(71000000L, book.length());
+        String text = page.toString();
+        assertEquals(71000, text.length());
+        assertEquals(repeat('a', 70) + "\n", text.substring(70929));
+    }
+
+    /**
+     * Um texto composto compartilhado não pode mais ser modificado, e um
+     * texto não pode ser acrescentado a si mesmo.
+     */
+    @Test
+    public void freezeShared() {
+        Rope shared = new Rope();
+        shared.append("abc");
+        Rope rope = new Rope();
+        rope.append(shared);
+        try {
+            shared.append("d");
+            fail("O texto compartilhado foi modificado.");
+        }
+        catch (IllegalStateException exception) {
+            // o texto compartilhado não pode ser modificado
+        }
+        try {
+            rope.append(rope);
+            fail("O texto foi acrescentado a si mesmo.");
+        }
+        catch (IllegalArgumentException exception) {
+            // o texto não pode ser acrescentado a si mesmo
+        }
+        assertEquals("abc", rope.toString());
+    }
+
+    /**
+     * As repetições aninhadas e as chamadas repetidas produzem o mesmo texto
+     * que a concatenação das expansões.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void expandRepetitions() throws Exception {
+        String text = MacroExpander.parse(
+                "\\.define(\\|\\.w.\\ = \\{<\\.repeat(\\;3;\\,\\:ab:\\).\\>" +
+                "{\\|\\).\\\\.repeat(\\;200;\\,\\:\\.w.\\\\.w.\\:\\).\\",
+                new ExpansionContext());
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            expected.append("<ababab>");
+        }
+        assertEquals(expected.toString(), text);
+    }
+
+    /**
+     * Obtém uma cadeia com o símbolo repetido.
+     * @param symbol Símbolo.
+     * @param times Número de repetições.
+     * @return Cadeia com o símbolo repetido.
+     */
+    private static String repeat(char symbol, int times) {
+        StringBuilder sb = new StringBuilder(times);
+        for (int i = 0; i < times; i++) {
+            sb.append(symbol);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.model;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes do destino que encaminha o texto expandido para um escritor.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class WriterSinkTest {
+
+    // texto que escreve muito mais que a área de acumulação, contando as
+    // repetições executadas
+    private static final String TEXT =
+            "\\.new counter(\\,c,\\).\\" +
+            "\\.repeat(\\;100000;\\,\\:abcdefgh" +
+            "\\.increment counter(\\,c,\\).\\:\\).\\";
+
+    /**
+     * O texto expandido é encaminhado ao escritor por inteiro.
+     * @throws Exception Ocorreu um erro na expansão.
+     */
+    @Test
+    public void forwardText() throws Exception {
+        StringWriter writer = new StringWriter();
+        ExpansionContext context = new ExpansionContext();
+        MacroExpander.parse(TEXT, context, writer);
+        assertEquals(800000, writer.toString().length());
+        assertEquals(100000, context.getCounters().get("c"));
+    }
+
+    /**
+     * Um erro de escrita interrompe a expansão de imediato e é lançado pela
+     * expansão, sem que o restante do texto seja expandido.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void stopOnWriteError() throws Exception {
+        final IOException error = new IOException("Disco cheio.");
+        Writer writer = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length)
+                    throws IOException {
+                throw error;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ExpansionContext context = new ExpansionContext();
+        try {
+            MacroExpander.parse(TEXT, context, writer);
+            fail("O erro de escrita não foi lançado.");
+        }
+        catch (IOException exception) {
+            assertSame(error, exception);
+        }
+        assertTrue(context.getCounters().get("c") < 100000);
+        assertEquals("ok", MacroExpander.parse("ok", context));
+    }
+
+}
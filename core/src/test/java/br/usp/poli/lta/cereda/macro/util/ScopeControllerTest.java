@@ -0,0 +1,125 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Macro;
+import br.usp.poli.lta.cereda.macro.model.Signature;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * Testes da procura de macros nos escopos, em especial do filtro de
+ * assinaturas que permite seguir diretamente para o escopo global.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ScopeControllerTest {
+
+    /**
+     * Uma macro definida no escopo corrente oculta a macro global, mesmo
+     * depois de uma procura que consultou apenas o escopo global.
+     */
+    @Test
+    public void shadowAfterShortcut() {
+        Signature name = new Signature("shadowed", 0);
+        Macro global = new Macro(name, "global");
+        Macro local = new Macro(name, "local");
+        ScopeController scopes = new ScopeController();
+        scopes.createNewScope();
+        scopes.addMacroToGlobalScope(global);
+        scopes.createNewScope();
+        scopes.addMacroToCurrentScope(new Macro(
+                new Signature("other", 0), "other"));
+        scopes.createNewScope();
+        assertSame(global, scopes.find(name));
+        assertEquals(1, scopes.getShortcuts());
+        scopes.addMacroToCurrentScope(local);
+        assertSame(local, scopes.find(name));
+        scopes.createNewScope();
+        assertSame(local, scopes.find(name));
+        scopes.removeCurrentScope();
+        scopes.removeCurrentScope();
+        assertSame(global, scopes.find(name));
+        assertEquals(4, scopes.getLookups());
+    }
+
+    /**
+     * Uma definição em um escopo compartilhado com uma cópia invalida os
+     * filtros já calculados nos escopos acima dele.
+     */
+    @Test
+    public void shadowInSharedScope() {
+        Signature name = new Signature("shared", 0);
+        Macro global = new Macro(name, "global");
+        Macro local = new Macro(name, "local");
+        ScopeController scopes = new ScopeController();
+        scopes.createNewScope();
+        scopes.addMacroToGlobalScope(global);
+        scopes.createNewScope();
+        scopes.addMacroToCurrentScope(new Macro(
+                new Signature("other", 0), "other"));
+        ScopeController copy = scopes.snapshot();
+        scopes.createNewScope();
+        scopes.addMacroToCurrentScope(new Macro(
+                new Signature("another", 0), "another"));
+        assertSame(global, scopes.find(name));
+        copy.addMacroToCurrentScope(local);
+        assertSame(local, scopes.find(name));
+        assertSame(local, copy.find(name));
+    }
+
+    /**
+     * Uma cópia compartilha os escopos existentes sem copiá-los, mas os
+     * escopos empilhados e removidos posteriormente pertencem apenas ao
+     * controlador que os modificou.
+     */
+    @Test
+    public void isolateSnapshot() {
+        Signature name = new Signature("isolated", 0);
+        Macro first = new Macro(name, "first");
+        Macro second = new Macro(name, "second");
+        ScopeController scopes = new ScopeController();
+        scopes.createNewScope();
+        for (int i = 0; i < 1000; i++) {
+            scopes.createNewScope();
+            scopes.addMacroToCurrentScope(new Macro(
+                    new Signature("level" + i, 0), "level"));
+        }
+        ScopeController copy = scopes.snapshot();
+        assertEquals(scopes.size(), copy.size());
+        assertSame(scopes.getCurrentScope(), copy.getCurrentScope());
+        scopes.createNewScope();
+        scopes.addMacroToCurrentScope(first);
+        copy.createNewScope();
+        copy.addMacroToCurrentScope(second);
+        assertSame(first, scopes.find(name));
+        assertSame(second, copy.find(name));
+        copy.removeScopesAbove(1);
+        assertNull(copy.find(new Signature("level0", 0)));
+        assertSame(first, scopes.find(name));
+        assertEquals(1002, scopes.size());
+        assertEquals("level", scopes.find(
+                new Signature("level0", 0)).getBody());
+    }
+
+}
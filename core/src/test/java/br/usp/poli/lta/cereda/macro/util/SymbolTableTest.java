@@ -0,0 +1,107 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.Compiler;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Program;
+import br.usp.poli.lta.cereda.macro.model.exceptions.MacroNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Testes da tabela de símbolos compartilhada pelos contextos. Os nomes
+ * utilizados nos testes são únicos, de modo que os testes não dependem dos
+ * nomes registrados por outros testes; como os símbolos sem uso podem ser
+ * removidos a qualquer momento, os testes verificam apenas que a tabela não
+ * cresce.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class SymbolTableTest {
+
+    /**
+     * As procuras de macros inexistentes não registram os nomes procurados.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void keepSizeAfterMisses() throws Exception {
+        ExpansionContext context = new ExpansionContext();
+        context.getScopes().createNewScope();
+        int size = SymbolTable.size();
+        for (int i = 0; i < 1000; i++) {
+            try {
+                MacroUtils.find(context, "missing " + i, i % 3);
+                fail("A macro não deveria ter sido encontrada.");
+            }
+            catch (MacroNotFoundException exception) {
+            }
+            try {
+                MacroUtils.findParameter(context, "missing " + i);
+                fail("O parâmetro não deveria ter sido encontrado.");
+            }
+            catch (MacroNotFoundException exception) {
+            }
+        }
+        assertTrue(SymbolTable.size() <= size);
+    }
+
+    /**
+     * Os nomes dos contadores não são registrados na tabela.
+     * @throws Exception Ocorreu um erro não esperado na expansão.
+     */
+    @Test
+    public void keepSizeAfterCounters() throws Exception {
+        int size = SymbolTable.size();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("\\.new counter(\\,unique counter ").append(i);
+            sb.append(",\\).\\");
+        }
+        assertEquals("", MacroExpander.parse(sb.toString(),
+                new ExpansionContext()));
+        assertTrue(SymbolTable.size() <= size);
+    }
+
+    /**
+     * Os símbolos dos textos compilados descartados são removidos da tabela.
+     */
+    @Test
+    public void releaseUnusedSymbols() {
+        int size = SymbolTable.size();
+        List<Program> programs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            programs.add(Compiler.compile("\\.released " + i + ".\\"));
+        }
+        assertTrue(SymbolTable.size() >= size + 1000);
+        programs = null;
+        for (int i = 0; i < 50 && SymbolTable.size() > size; i++) {
+            System.gc();
+        }
+        assertTrue(SymbolTable.size() <= size);
+    }
+
+}
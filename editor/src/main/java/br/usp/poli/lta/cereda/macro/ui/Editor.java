@@ -132,7 +132,11 @@ public class Editor extends JFrame {
         run.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent ae) {
+                
+                // cada execução parte do contexto padrão restaurado, sem as
+                // definições e os contadores das execuções anteriores
                 try {
+                    MacroExpander.reset();
                     output.setText(MacroExpander.parse(input.getText()));
                 }
                 catch (Exception exception) {
@@ -0,0 +1,57 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.Interaction;
+import br.usp.poli.lta.cereda.macro.model.Pair;
+
+/**
+ * Implementa a interação com o usuário através das janelas da interface
+ * gráfica. O tema das janelas é definido apenas na exibição da primeira
+ * janela, e não no início de cada expansão.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class DialogInteraction implements Interaction {
+
+    /**
+     * Exibe uma janela para inserção de texto, retornando o valor digitado.
+     * @param title Título da janela.
+     * @param text Texto inicial.
+     * @return Par contendo a indicação de expansão posterior e o texto
+     * digitado.
+     */
+    @Override
+    public Pair<Boolean, String> getInputText(String title, String text) {
+        return DisplayUtils.getInputText(title, text);
+    }
+
+    /**
+     * Exibe a mensagem em uma janela.
+     * @param title Título da janela.
+     * @param text Texto da mensagem.
+     */
+    @Override
+    public void showMessage(String title, String text) {
+        DisplayUtils.showMessage(title, text);
+    }
+    
+}
@@ -38,10 +38,19 @@ public class DisplayUtils {
     private static final Logger logger =
             LogManager.getLogger(DisplayUtils.class);
     
+    // indica se o tema das janelas já foi definido
+    private static boolean initialized = false;
+    
     /**
-     * Inicializa a classe de exibição, definindo o tema das janelas.
+     * Inicializa a classe de exibição, definindo o tema das janelas. O tema é
+     * definido apenas uma vez, na exibição da primeira janela, mesmo que
+     * várias janelas sejam exibidas em paralelo.
      */
-    public static void init() {
+    public static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         }
@@ -61,6 +70,7 @@ public class DisplayUtils {
      */
     public static Pair<Boolean, String> getInputText(String title,
             String text) {
+        init();
         InputText input = new InputText(title, text);
         return input.display();
     }
@@ -71,6 +81,7 @@ public class DisplayUtils {
      * @param text Texto da mensagem.
      */
     public static void showMessage(String title, String text) {
+        init();
         JOptionPane.showMessageDialog(null, WordUtils.wrap(text, 70),
                 title, JOptionPane.INFORMATION_MESSAGE);
     }
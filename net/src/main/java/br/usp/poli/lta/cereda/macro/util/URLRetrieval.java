@@ -19,22 +19,25 @@
 **/
 package br.usp.poli.lta.cereda.macro.util;
 
+import br.usp.poli.lta.cereda.macro.model.Retrieval;
 import br.usp.poli.lta.cereda.macro.model.exceptions.TextRetrievalException;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
-import org.apache.commons.io.FileUtils;
 
 /**
- * Implementa alguns métodos comuns.
+ * Implementa a obtenção de documentos a partir de URLs. O conteúdo é lido
+ * diretamente do fluxo de bytes, sem arquivos intermediários, de modo que
+ * expansões simultâneas não interfiram entre si.
  * @author Paulo Roberto Massa Cereda
- * @version 1.0
+ * @version 2.0
  * @since 1.0
  */
-public class CommonUtils {
+public class URLRetrieval implements Retrieval {
     
     /**
      * Obtém o conteúdo a partir do caminho informado.
@@ -42,29 +45,28 @@ public class CommonUtils {
      * @return Conteúdo do caminho informado.
      * @throws TextRetrievalException Um erro ocorreu ao obter o arquivo.
      */
-    public static String get(String path) throws TextRetrievalException {
+    @Override
+    public String get(String path) throws TextRetrievalException {
         
         try {
             
-            // cria uma nova URL e obtém o fluxo de bytes
+            // cria uma nova URL, obtém o fluxo de bytes e lê o conteúdo
             URL url = new URL(path);
-            InputStream stream = url.openStream();
-            
-            // cria um arquivo temporário, copia o fluxo de bytes para ele, lê
-            // o conteúdo e remove o arquivo temporário
-            File temp = new File(
-                            System.getProperty("user.home").concat(
-                                    java.io.File.separator).
-                                    concat("get-tmp.txt"));
-            FileUtils.copyInputStreamToFile(stream, temp);
-            String output = FileUtils.readFileToString(
-                    temp,
-                    Charset.forName("UTF-8")
-            );
-            temp.delete();
-            
-            // retorna o conteúdo
-            return output;
+            try (InputStream stream = url.openStream()) {
+                Reader reader = new InputStreamReader(
+                        stream,
+                        Charset.forName("UTF-8")
+                );
+                StringBuilder output = new StringBuilder();
+                char[] buffer = new char[8192];
+                int count;
+                while ((count = reader.read(buffer)) != -1) {
+                    output.append(buffer, 0, count);
+                }
+                
+                // retorna o conteúdo
+                return output.toString();
+            }
             
         }
         catch (MalformedURLException mue) {
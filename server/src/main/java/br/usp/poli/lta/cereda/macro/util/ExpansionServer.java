@@ -0,0 +1,463 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.MacroExpander;
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Interaction;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import br.usp.poli.lta.cereda.macro.model.Retrieval;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementa o serviço HTTP de expansão, baseado no servidor HTTP da
+ * plataforma. O serviço aceita requisições POST em '/expand', cujo corpo é o
+ * texto a ser expandido, codificado em UTF-8; o parâmetro opcional 'library'
+ * indica uma das bibliotecas previamente carregadas, em cujo contexto o texto
+ * é expandido. O texto expandido é devolvido em blocos, com a codificação de
+ * transferência em partes, à medida que a expansão avança.
+ * <p>
+ * Cada requisição é expandida em um contexto próprio, com controlador de
+ * escopo e contadores isolados, em um conjunto limitado de linhas de
+ * execução; as requisições excedentes aguardam na fila. As primitivas de
+ * interação não abrem janelas e, por padrão, a obtenção de documentos a
+ * partir de URLs é desabilitada, uma vez que o texto provém do cliente.
+ * <p>
+ * Um erro na expansão resulta no estado 422, com a mensagem de erro, caso
+ * nenhum trecho do texto expandido tenha sido enviado; caso contrário, a
+ * conexão é interrompida antes do término da resposta, de modo que o cliente
+ * não a confunda com uma resposta completa.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ExpansionServer {
+    
+    // logger para gerenciamento do processo de expansão das macros
+    private static final Logger logger =
+            LogManager.getLogger(ExpansionServer.class);
+    
+    // tamanho máximo padrão do corpo de uma requisição, em bytes
+    public static final int DEFAULT_SIZE = 1048576;
+    
+    // caminho do recurso de expansão
+    private static final String PATH = "/expand";
+    
+    // codificação dos textos recebidos e devolvidos
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    // servidor HTTP
+    private final HttpServer server;
+    
+    // conjunto de linhas de execução das expansões
+    private final ExecutorService pool;
+    
+    // número máximo de chamadas aninhadas dos textos expandidos sem biblioteca
+    private final int limit;
+    
+    // tamanho máximo do corpo de uma requisição, em bytes
+    private final int size;
+    
+    // bibliotecas carregadas, indexadas pelo nome
+    private final Map<String, Library> libraries =
+            new ConcurrentHashMap<>();
+    
+    // interação das primitivas de inserção de texto e de envio de mensagem
+    private final Interaction interaction = new HeadlessInteraction();
+    
+    // obtenção de documentos a partir de URLs, desabilitada por padrão
+    private volatile Retrieval retrieval;
+
+    /**
+     * Construtor de um serviço que atende apenas conexões locais, com uma
+     * linha de execução por processador disponível e o tamanho máximo padrão
+     * do corpo das requisições.
+     * @param port Porta local do serviço, ou 0 para uma porta livre qualquer.
+     * @throws IOException Não foi possível abrir a porta do serviço.
+     */
+    public ExpansionServer(int port) throws IOException {
+        this(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                ExpansionContext.DEFAULT_LIMIT,
+                Runtime.getRuntime().availableProcessors(),
+                DEFAULT_SIZE
+        );
+    }
+
+    /**
+     * Construtor.
+     * @param address Endereço do serviço.
+     * @param limit Número máximo de chamadas aninhadas dos textos expandidos
+     * sem biblioteca; os textos expandidos com uma biblioteca utilizam o
+     * limite da biblioteca.
+     * @param threads Número de expansões simultâneas.
+     * @param size Tamanho máximo do corpo de uma requisição, em bytes.
+     * @throws IOException Não foi possível abrir a porta do serviço.
+     */
+    public ExpansionServer(InetSocketAddress address, int limit, int threads,
+            int size) throws IOException {
+        this.limit = limit;
+        this.size = size;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(pool);
+        this.server.createContext(PATH, new Handler());
+    }
+
+    /**
+     * Adiciona uma biblioteca, referenciada pelo nome nas requisições.
+     * @param name Nome da biblioteca.
+     * @param library Biblioteca de macros.
+     */
+    public void addLibrary(String name, Library library) {
+        libraries.put(name, library);
+    }
+
+    /**
+     * Define a obtenção de documentos a partir de URLs dos textos expandidos.
+     * @param retrieval Obtenção de documentos, ou nulo para desabilitá-la.
+     */
+    public void setRetrieval(Retrieval retrieval) {
+        this.retrieval = retrieval;
+    }
+
+    /**
+     * Obtém o endereço do serviço, incluindo a porta efetivamente utilizada.
+     * @return Endereço do serviço.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Inicia o atendimento das requisições.
+     */
+    public void start() {
+        server.start();
+        logger.info(
+                "Serviço HTTP de expansão iniciado em '{}'.",
+                server.getAddress()
+        );
+    }
+
+    /**
+     * Encerra o serviço, aguardando as requisições em andamento pelo tempo
+     * informado.
+     * @param delay Tempo máximo de espera, em segundos.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        pool.shutdown();
+    }
+
+    /**
+     * Tratador das requisições de expansão.
+     */
+    private class Handler implements HttpHandler {
+
+        /**
+         * Trata uma requisição de expansão. A troca é fechada apenas quando a
+         * resposta está completa; um erro de comunicação ou uma expansão
+         * interrompida após o início da resposta propagam a exceção, e o
+         * servidor encerra a conexão sem concluir a resposta.
+         * @param exchange Requisição e resposta.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente,
+         * ou na expansão após o envio de parte do texto expandido.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            respond(exchange);
+            exchange.close();
+        }
+
+        /**
+         * Responde a uma requisição de expansão.
+         * @param exchange Requisição e resposta.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente,
+         * ou na expansão após o envio de parte do texto expandido.
+         */
+        private void respond(HttpExchange exchange) throws IOException {
+            if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                reply(exchange, 404, "O recurso informado não existe.");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                reply(exchange, 405, "O recurso aceita apenas o método POST.");
+                return;
+            }
+            
+            // obtém o contexto da expansão, isolado dos demais
+            ExpansionContext context;
+            String name = getParameter(exchange, "library");
+            if (name == null) {
+                context = new ExpansionContext(limit);
+            }
+            else {
+                Library library = libraries.get(name);
+                if (library == null) {
+                    reply(exchange, 404, String.format(
+                            "A biblioteca '%s' não existe.", name));
+                    return;
+                }
+                context = library.createContext();
+            }
+            context.setInteraction(interaction);
+            context.setRetrieval(retrieval);
+            
+            String text = read(exchange);
+            if (text == null) {
+                reply(exchange, 413, String.format(
+                        "O texto excede o tamanho máximo de %d bytes.",
+                        size));
+                return;
+            }
+            expand(exchange, text, context);
+        }
+
+        /**
+         * Expande o texto, enviando o resultado ao cliente à medida que a
+         * expansão avança.
+         * @param exchange Requisição e resposta.
+         * @param text Texto a ser expandido.
+         * @param context Contexto da expansão.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente,
+         * ou na expansão após o envio de parte do texto expandido.
+         */
+        private void expand(HttpExchange exchange, String text,
+                ExpansionContext context) throws IOException {
+            Response response = new Response(exchange);
+            Writer writer = new OutputStreamWriter(response, UTF8);
+            try {
+                MacroExpander.parse(text, context, writer);
+            }
+            catch (IOException exception) {
+                throw exception;
+            }
+            catch (Exception exception) {
+                logger.info(
+                        "Ocorreu um erro na expansão da requisição: {}",
+                        exception.getMessage()
+                );
+                if (response.isCommitted()) {
+                    
+                    // a resposta já foi iniciada; a conexão é interrompida
+                    // sem o bloco final da transferência em partes
+                    throw new IOException(exception.getMessage(), exception);
+                }
+                reply(exchange, 422, exception.getMessage());
+                return;
+            }
+            response.finish();
+        }
+
+        /**
+         * Lê o corpo da requisição, respeitando o tamanho máximo.
+         * @param exchange Requisição e resposta.
+         * @return Texto da requisição, ou nulo caso exceda o tamanho máximo.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        private String read(HttpExchange exchange) throws IOException {
+            String header = exchange.getRequestHeaders().
+                    getFirst("Content-Length");
+            if (header != null) {
+                try {
+                    if (Long.parseLong(header.trim()) > size) {
+                        return null;
+                    }
+                }
+                catch (NumberFormatException exception) {
+                    // o tamanho é verificado durante a leitura
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (InputStream input = exchange.getRequestBody()) {
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    if (bytes.size() + count > size) {
+                        return null;
+                    }
+                    bytes.write(buffer, 0, count);
+                }
+            }
+            return new String(bytes.toByteArray(), UTF8);
+        }
+
+        /**
+         * Obtém o valor de um parâmetro da consulta da requisição.
+         * @param exchange Requisição e resposta.
+         * @param name Nome do parâmetro.
+         * @return Valor do parâmetro, ou nulo caso não tenha sido informado.
+         * @throws UnsupportedEncodingException A codificação não é suportada.
+         */
+        private String getParameter(HttpExchange exchange, String name)
+                throws UnsupportedEncodingException {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    int index = parameter.indexOf('=');
+                    String key = index < 0 ?
+                            parameter : parameter.substring(0, index);
+                    if (name.equals(URLDecoder.decode(key, "UTF-8"))) {
+                        return index < 0 ? "" : URLDecoder.decode(
+                                parameter.substring(index + 1), "UTF-8");
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Envia uma resposta textual completa.
+         * @param exchange Requisição e resposta.
+         * @param status Estado da resposta.
+         * @param message Texto da resposta.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        private void reply(HttpExchange exchange, int status, String message)
+                throws IOException {
+            byte[] bytes = String.valueOf(message).concat("\n").getBytes(UTF8);
+            exchange.getResponseHeaders().set(
+                    "Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+        
+    }
+
+    /**
+     * Fluxo de saída da resposta de uma expansão. Os cabeçalhos da resposta
+     * são enviados apenas na primeira escrita, de modo que um erro ocorrido
+     * antes do envio de qualquer trecho do texto expandido ainda possa ser
+     * informado com o estado adequado.
+     */
+    private static class Response extends OutputStream {
+        
+        // requisição e resposta
+        private final HttpExchange exchange;
+        
+        // corpo da resposta, obtido após o envio dos cabeçalhos
+        private OutputStream body;
+
+        /**
+         * Construtor.
+         * @param exchange Requisição e resposta.
+         */
+        Response(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * Verifica se os cabeçalhos da resposta já foram enviados.
+         * @return Valor lógico que indica se a resposta foi iniciada.
+         */
+        boolean isCommitted() {
+            return body != null;
+        }
+
+        /**
+         * Escreve um byte.
+         * @param value Byte a ser escrito.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void write(int value) throws IOException {
+            commit(0).write(value);
+        }
+
+        /**
+         * Escreve um trecho do vetor de bytes.
+         * @param bytes Vetor de bytes.
+         * @param offset Posição inicial do trecho.
+         * @param length Tamanho do trecho.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            if (length > 0) {
+                commit(0).write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Envia os trechos pendentes ao cliente, caso a resposta tenha sido
+         * iniciada.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        /**
+         * Conclui a resposta. Uma expansão sem texto resulta em uma resposta
+         * vazia.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        void finish() throws IOException {
+            commit(-1).close();
+        }
+
+        /**
+         * Envia os cabeçalhos da resposta, caso ainda não tenham sido
+         * enviados.
+         * @param length Tamanho do corpo, sendo 0 para a transferência em
+         * partes e -1 para uma resposta sem corpo.
+         * @return Corpo da resposta.
+         * @throws IOException Ocorreu um erro na comunicação com o cliente.
+         */
+        private OutputStream commit(long length) throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set(
+                        "Content-Type", "text/plain; charset=UTF-8");
+                exchange.sendResponseHeaders(200, length);
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+        
+    }
+    
+}
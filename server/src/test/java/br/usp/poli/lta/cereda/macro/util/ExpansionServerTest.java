@@ -0,0 +1,304 @@
+/**
+* ------------------------------------------------------
+*    Laboratório de Linguagens e Técnicas Adaptativas
+*       Escola Politécnica, Universidade São Paulo
+* ------------------------------------------------------
+* 
+* This program is free software: you can redistribute it
+* and/or modify  it under the  terms of the  GNU General
+* Public  License  as  published by  the  Free  Software
+* Foundation, either  version 3  of the License,  or (at
+* your option) any later version.
+* 
+* This program is  distributed in the hope  that it will
+* be useful, but WITHOUT  ANY WARRANTY; without even the
+* implied warranty  of MERCHANTABILITY or FITNESS  FOR A
+* PARTICULAR PURPOSE. See the GNU General Public License
+* for more details.
+* 
+**/
+package br.usp.poli.lta.cereda.macro.util;
+
+import br.usp.poli.lta.cereda.macro.model.ExpansionContext;
+import br.usp.poli.lta.cereda.macro.model.Library;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testes do serviço HTTP de expansão, atendendo conexões locais em uma porta
+ * livre qualquer.
+ * @author Paulo Roberto Massa Cereda
+ * @version 2.0
+ * @since 2.0
+ */
+public class ExpansionServerTest {
+
+    // codificação dos textos enviados e recebidos
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    // tamanho máximo do corpo das requisições nos testes
+    private static final int SIZE = 1024;
+    
+    // serviço em teste
+    private ExpansionServer server;
+
+    /**
+     * Inicia o serviço, com uma biblioteca que define uma macro e um
+     * contador.
+     * @throws Exception Ocorreu um erro na inicialização.
+     */
+    @Before
+    public void start() throws Exception {
+        server = new ExpansionServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                ExpansionContext.DEFAULT_LIMIT,
+                4,
+                SIZE
+        );
+        server.addLibrary("base", Library.load(
+                "\\.define(\\|\\.hello(\\;x;\\).\\ = \\{Hello, \\.x.\\!{" +
+                "\\|\\).\\\\.new counter(\\,n,\\).\\"
+        ));
+        server.start();
+    }
+
+    /**
+     * Encerra o serviço.
+     */
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * O texto expandido é enviado em partes, com o estado 200.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void expand() throws Exception {
+        HttpURLConnection connection = post("/expand?library=base",
+                "\\.increment counter(\\,n,\\).\\\\.counter(\\,n,\\).\\ " +
+                "\\.hello(\\,world,\\).\\"
+        );
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("chunked",
+                connection.getHeaderField("Transfer-Encoding"));
+        assertEquals("1 Hello, world!", read(connection));
+    }
+
+    /**
+     * Um recurso ou uma biblioteca inexistentes resultam no estado 404.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void notFound() throws Exception {
+        assertEquals(404, post("/other", "a").getResponseCode());
+        assertEquals(404, post("/expand?library=none", "a").
+                getResponseCode());
+    }
+
+    /**
+     * Um método diferente de POST resulta no estado 405.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void methodNotAllowed() throws Exception {
+        HttpURLConnection connection = open("/expand");
+        connection.setRequestMethod("GET");
+        assertEquals(405, connection.getResponseCode());
+        assertEquals("POST", connection.getHeaderField("Allow"));
+    }
+
+    /**
+     * Um texto maior que o tamanho máximo resulta no estado 413, tanto com o
+     * tamanho informado no cabeçalho quanto com a transferência em partes.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void tooLarge() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= SIZE; i++) {
+            text.append('a');
+        }
+        assertEquals(413, post("/expand", text.toString()).getResponseCode());
+        
+        HttpURLConnection connection = open("/expand");
+        connection.setChunkedStreamingMode(256);
+        write(connection, text.toString());
+        assertEquals(413, connection.getResponseCode());
+    }
+
+    /**
+     * Um erro na expansão, antes do envio de qualquer trecho do texto
+     * expandido, resulta no estado 422.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void unprocessable() throws Exception {
+        HttpURLConnection connection = post("/expand",
+                "\\.missing.\\"
+        );
+        assertEquals(422, connection.getResponseCode());
+        assertTrue(read(connection).contains("'missing'"));
+    }
+
+    /**
+     * Um erro na expansão, após o envio de parte do texto expandido, encerra
+     * a conexão sem concluir a resposta.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void abort() throws Exception {
+        HttpURLConnection connection = post("/expand",
+                "\\.repeat(\\;20000;\\,\\:a:\\).\\\\.missing.\\"
+        );
+        assertEquals(200, connection.getResponseCode());
+        try {
+            read(connection);
+            fail("A resposta interrompida foi concluída.");
+        }
+        catch (IOException exception) {
+            // a conexão foi encerrada sem o bloco final
+        }
+    }
+
+    /**
+     * As definições e os contadores de uma requisição não são visíveis às
+     * demais, inclusive quando todas utilizam a mesma biblioteca.
+     * @throws Exception Ocorreu um erro na comunicação.
+     */
+    @Test
+    public void isolate() throws Exception {
+        assertEquals("1", read(post("/expand?library=base",
+                "\\.global define(\\|\\.g.\\ = \\{1{\\|\\).\\\\.g.\\"
+        )));
+        assertEquals(422, post("/expand?library=base",
+                "\\.g.\\"
+        ).getResponseCode());
+        assertEquals("1 Hello, world!", read(post("/expand?library=base",
+                "\\.increment counter(\\,n,\\).\\\\.counter(\\,n,\\).\\ " +
+                "\\.hello(\\,world,\\).\\"
+        )));
+        
+        // requisições simultâneas definem a mesma macro global com valores
+        // distintos
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                final String value = String.valueOf((char) ('a' + i));
+                results.add(pool.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        latch.await();
+                        return read(post("/expand?library=base",
+                                String.format(
+                                        "\\.global define(\\|\\.v.\\ = " +
+                                        "\\{%s{\\|\\).\\\\.repeat(\\;2000;" +
+                                        "\\,\\:\\.v.\\:\\).\\",
+                                        value
+                                )
+                        ));
+                    }
+                }));
+            }
+            latch.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                String value = String.valueOf((char) ('a' + i));
+                StringBuilder expected = new StringBuilder();
+                for (int j = 0; j < 2000; j++) {
+                    expected.append(value);
+                }
+                assertEquals(expected.toString(), results.get(i).get());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Abre uma conexão com o recurso informado.
+     * @param path Caminho e consulta do recurso.
+     * @return Conexão.
+     * @throws IOException Ocorreu um erro na comunicação.
+     */
+    private HttpURLConnection open(String path) throws IOException {
+        InetSocketAddress address = server.getAddress();
+        URL url = new URL("http", address.getHostString(),
+                address.getPort(), path);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    /**
+     * Envia o texto ao recurso informado com o método POST.
+     * @param path Caminho e consulta do recurso.
+     * @param text Texto a ser enviado.
+     * @return Conexão.
+     * @throws IOException Ocorreu um erro na comunicação.
+     */
+    private HttpURLConnection post(String path, String text)
+            throws IOException {
+        HttpURLConnection connection = open(path);
+        write(connection, text);
+        return connection;
+    }
+
+    /**
+     * Envia o texto com o método POST.
+     * @param connection Conexão.
+     * @param text Texto a ser enviado.
+     * @throws IOException Ocorreu um erro na comunicação.
+     */
+    private static void write(HttpURLConnection connection, String text)
+            throws IOException {
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(text.getBytes(UTF8));
+        }
+    }
+
+    /**
+     * Lê o corpo da resposta, inclusive das respostas de erro.
+     * @param connection Conexão.
+     * @return Corpo da resposta.
+     * @throws IOException Ocorreu um erro na comunicação.
+     */
+    private static String read(HttpURLConnection connection)
+            throws IOException {
+        InputStream stream = connection.getResponseCode() < 400 ?
+                connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream input = stream) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+        }
+        return new String(bytes.toByteArray(), UTF8);
+    }
+    
+}